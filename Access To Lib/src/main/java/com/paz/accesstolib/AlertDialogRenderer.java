@@ -0,0 +1,88 @@
+package com.paz.accesstolib;
+
+import android.app.Activity;
+import android.content.DialogInterface;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * the default PromptRenderer. the AlertDialog of each kind is built on the first prompt and reused by the next
+ * prompts of the same activity, only the title and the message change. a new dialog is built when the previous
+ * one is still showing, or when the prompt has a title or a message and the dialog doesn't (or the other way):
+ * AlertDialog lays out the title and message views on create and doesn't show or hide them later. main thread only
+ */
+final class AlertDialogRenderer implements PromptRenderer {
+    private static final Prompt.Kind[] KINDS = Prompt.Kind.values();
+
+    /**
+     * a dialog and the actions of the prompt it shows, null when it's not showing
+     */
+    private static final class Binding {
+        AlertDialog dialog;
+        Actions actions;
+        boolean hasTitle;
+        boolean hasMessage;
+    }
+
+    private WeakReference<Activity> owner = new WeakReference<>(null);
+    private final Binding[] bindings = new Binding[KINDS.length];
+
+    @Override
+    public void show(@NonNull Activity activity, @NonNull Prompt prompt, @NonNull Actions actions) {
+        if (owner.get() != activity) {
+            owner = new WeakReference<>(activity);
+            for (int i = 0; i < bindings.length; i++)
+                bindings[i] = null;
+        }
+        String title = prompt.getTitle() != null ? prompt.getTitle()
+                : prompt.getKind() == Prompt.Kind.SETTING ? activity.getString(R.string.accessto_setting_title) : null;
+        String message = prompt.getMessage();
+        int kind = prompt.getKind().ordinal();
+        Binding binding = bindings[kind];
+        if (binding == null || binding.actions != null || binding.hasTitle != (title != null)
+                || binding.hasMessage != (message != null)) {
+            Binding created = create(activity, prompt.getKind(), title, message);
+            // a dialog that is showing is reused after it closes, an idle one that doesn't fit is replaced
+            if (binding == null || binding.actions == null)
+                bindings[kind] = created;
+            binding = created;
+        }
+        binding.actions = actions;
+        binding.dialog.setTitle(title);
+        binding.dialog.setMessage(message);
+        binding.dialog.show();
+    }
+
+    private static Binding create(@NonNull Activity activity, @NonNull Prompt.Kind kind, String title, String message) {
+        Binding binding = new Binding();
+        binding.hasTitle = title != null;
+        binding.hasMessage = message != null;
+        boolean setting = kind == Prompt.Kind.SETTING;
+        DialogInterface.OnClickListener onClick = (dialog, which) -> {
+            Actions actions = binding.actions;
+            if (actions == null)
+                return;
+            if (which == DialogInterface.BUTTON_POSITIVE)
+                actions.onPositive();
+            else
+                actions.onNegative();
+        };
+        binding.dialog = new AlertDialog.Builder(activity)
+                .setTitle(title)
+                .setMessage(message)
+                .setPositiveButton(activity.getString(setting ? R.string.accessto_retry : R.string.accessto_agree), onClick)
+                .setNegativeButton(activity.getString(setting ? R.string.accessto_sure : R.string.accessto_decline), onClick)
+                .setOnDismissListener(dialog -> {
+                    Actions actions = binding.actions;
+                    binding.actions = null;
+                    if (actions != null)
+                        actions.onDismiss();
+                })
+                .setIcon(android.R.drawable.ic_dialog_info)
+                .create();
+        return binding;
+    }
+}
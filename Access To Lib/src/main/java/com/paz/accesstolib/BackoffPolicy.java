@@ -0,0 +1,113 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * when a permission that was not granted may be asked again, from its RequestLedger entry.
+ * after a prompt that didn't grant it the permission waits cooldown * multiplier^(prompts - 1), up to maxCooldown,
+ * and it's not asked again after maxAttempts prompts. a granted permission is never held back.
+ * see {@link GiveMe#setBackoffPolicy(BackoffPolicy)}
+ */
+public final class BackoffPolicy {
+    /**
+     * never holds back a permission
+     */
+    public static final BackoffPolicy NONE = new Builder().build();
+
+    private final long cooldownMs;
+    private final double multiplier;
+    private final long maxCooldownMs;
+    private final int maxAttempts;
+
+    private BackoffPolicy(Builder builder) {
+        cooldownMs = builder.cooldownMs;
+        multiplier = builder.multiplier;
+        maxCooldownMs = builder.maxCooldownMs;
+        maxAttempts = builder.maxAttempts;
+    }
+
+    /**
+     * @param entry - the ledger entry of the permission, null if it was never asked
+     * @return the first time (System.currentTimeMillis()) the permission may be asked again,
+     * 0 if now and Long.MAX_VALUE if never
+     */
+    public long nextAllowedTime(@Nullable RequestLedger.Entry entry) {
+        if (entry == null || entry.getOutcome() == RequestLedger.Outcome.GRANTED || entry.getPrompts() == 0)
+            return 0L;
+        if (maxAttempts > 0 && entry.getPrompts() >= maxAttempts)
+            return Long.MAX_VALUE;
+        double delay = cooldownMs * Math.pow(multiplier, entry.getPrompts() - 1);
+        long cooldown = (long) Math.min(delay, (double) maxCooldownMs);
+        if (cooldown <= 0)
+            return 0L;
+        // the default max cooldown is Long.MAX_VALUE, the sum must not wrap to the past
+        return cooldown > Long.MAX_VALUE - entry.getTime() ? Long.MAX_VALUE : entry.getTime() + cooldown;
+    }
+
+    /**
+     * @param entry - the ledger entry of the permission, null if it was never asked
+     * @param now   - System.currentTimeMillis()
+     * @return true if the permission may be asked now
+     */
+    public boolean allows(@Nullable RequestLedger.Entry entry, long now) {
+        return now >= nextAllowedTime(entry);
+    }
+
+    public static final class Builder {
+        private long cooldownMs;
+        private double multiplier = 1.0;
+        private long maxCooldownMs = Long.MAX_VALUE;
+        private int maxAttempts;
+
+        /**
+         * @param cooldown - the wait after the first prompt that didn't grant the permission, default 0
+         * @param unit     - the unit of cooldown
+         */
+        @NonNull
+        public Builder setCooldown(long cooldown, @NonNull TimeUnit unit) {
+            cooldownMs = unit.toMillis(cooldown);
+            return this;
+        }
+
+        /**
+         * @param multiplier - every prompt that didn't grant the permission multiplies the wait, default 1 (fixed cooldown)
+         */
+        @NonNull
+        public Builder setMultiplier(double multiplier) {
+            if (multiplier < 1.0)
+                throw new IllegalArgumentException("multiplier must be at least 1");
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * @param maxCooldown - the longest wait, default no limit
+         * @param unit        - the unit of maxCooldown
+         */
+        @NonNull
+        public Builder setMaxCooldown(long maxCooldown, @NonNull TimeUnit unit) {
+            maxCooldownMs = unit.toMillis(maxCooldown);
+            return this;
+        }
+
+        /**
+         * @param maxAttempts - the permission is not asked again after this number of prompts that didn't grant it,
+         *                    0 for no limit (default)
+         */
+        @NonNull
+        public Builder setMaxAttempts(int maxAttempts) {
+            if (maxAttempts < 0)
+                throw new IllegalArgumentException("maxAttempts can't be negative");
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        @NonNull
+        public BackoffPolicy build() {
+            return new BackoffPolicy(this);
+        }
+    }
+}
@@ -1,27 +1,66 @@
 package com.paz.accesstolib;
 
 import android.app.Activity;
+import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.provider.Settings;
-import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.appcompat.app.AlertDialog;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * safe to call from any thread. the dialogs and the system requests run on the main thread, and the GrantListener
+ * callbacks run on the callback executor, see {@link #setCallbackExecutor(Executor)}
+ */
 public class GiveMe {
+    private static final String KEY_STATE = "com.paz.accesstolib.GiveMe.state";
+    private static final String KEY_CODES = "codes";
+    private static final String KEY_START_TIMES = "startTimes";
+    private static final String KEY_SETTINGS = "settings";
+    private static final String KEY_PERMISSIONS = "permissions_";
     private final Activity activity;
     private final String TAG = getClass().getSimpleName();
-    private final int REQUEST_CODE = 2901;
-    private final int SETTING_REQUEST_CODE = 1803;
-    private GrantListener grantListener;
-    private String[] permissionsForResults;
-    private final MySharedPreferences msp;
-    private boolean debug;
+    private final AtomicReference<GrantListener> grantListener = new AtomicReference<>();
+    /**
+     * where the GrantListener callbacks run, null for the main thread
+     */
+    private final AtomicReference<Executor> callbackExecutor = new AtomicReference<>();
+    private final PermissionStore store;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final PermissionEngine engine = new PermissionEngine(new ActivityHost());
+    private final RequestScheduler.Dispatcher dispatcher = this::sendRequest;
+    /**
+     * the scheduler of the activity, shared with the other GiveMe instances of the activity. main thread
+     */
+    private RequestScheduler scheduler;
+    /**
+     * the requests waiting for onRequestPermissionsResult / onActivityResult by request code
+     */
+    private final RequestTable inFlight = new RequestTable(this::onExpired);
+    /**
+     * drops the in-flight entries whose result never came, posted while the table has entries
+     */
+    private final Runnable expireTask = this::expireInFlight;
+    private final Executor mainExecutor = this::runOnMain;
+    private volatile boolean debug;
+    private volatile LogSink logSink = LogSink.LOGCAT;
+    private volatile BackoffPolicy backoffPolicy = BackoffPolicy.NONE;
+    /**
+     * null for the default renderer, created on the first prompt
+     */
+    private volatile PromptRenderer promptRenderer;
+    private AlertDialogRenderer defaultRenderer;
 
     /**
      * constructor
@@ -31,7 +70,7 @@ public class GiveMe {
      */
     public GiveMe(Activity activity, GrantListener grantListener) {
         this(activity);
-        this.grantListener = grantListener;
+        this.grantListener.set(grantListener);
 
 
     }
@@ -43,93 +82,203 @@ public class GiveMe {
      * @param activity - the current activity
      */
     public GiveMe(Activity activity) {
+        this(activity, PermissionStores.encrypted(activity));
+
+    }
+
+    /**
+     * constructor
+     *
+     * @param activity      - the current activity
+     * @param grantListener - GrantListener: callbacks to perform after onRequestPermissionsResult
+     * @param store         - PermissionStore: where to keep the permissions history. see PermissionStores
+     */
+    public GiveMe(Activity activity, GrantListener grantListener, @NonNull PermissionStore store) {
+        this(activity, store);
+        this.grantListener.set(grantListener);
+
+    }
+
+    /**
+     * constructor
+     * note! grantListener is null.
+     *
+     * @param activity - the current activity
+     * @param store    - PermissionStore: where to keep the permissions history. see PermissionStores
+     */
+    public GiveMe(Activity activity, @NonNull PermissionStore store) {
         this.activity = activity;
-        msp = new MySharedPreferences(activity);
+        this.store = store;
         debug = false;
 
     }
 
-    public boolean onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
-        logger("at onActivityResult");
-        if (requestCode == SETTING_REQUEST_CODE) {
-            logger("requestCode is ok, start checking");
-            if (checkPermissionsList(permissionsForResults)) {
-                logger("all granted");
-                grantListener.onGranted(true);
-            } else if (permissionsForResults != null) {
-                ArrayList<String> notGranted = new ArrayList<>();
-                ArrayList<String> neverAskAgain = new ArrayList<>();
-                for (String permission : permissionsForResults) {
-                    if (!activity.shouldShowRequestPermissionRationale(permission)) {
-                        // user also CHECKED "never ask again"
-                        logger("the permission " + permission + " mark as \"don't ask again\"");
-                        neverAskAgain.add(permission);
-                    } else {
-                        // user did NOT check "never ask again"
-                        logger("the permission " + permission + " not granted");
-                        notGranted.add(permission);
-                    }
-                    if (neverAskAgain.size() > 0) {
-                        logger("the permissions " + neverAskAgain + " mark as \"don't ask again\"");
-                        grantListener.onNeverAskAgain(neverAskAgain.toArray(new String[0]));
-                    }
-                    if (notGranted.size() > 0) {
-                        logger("the permissions " + notGranted + " not granted");
-                        grantListener.onNotGranted(notGranted.toArray(new String[0]));
-                    }
-                    logger("all granted? false");
-                    grantListener.onGranted(false);
-                }
+    /**
+     * start loading the default (encrypted) permissions store in the background so the first GiveMe won't wait for it.
+     * the store is shared by all the GiveMe instances of the process.
+     * call it once as early as possible, for example from Application.onCreate
+     *
+     * @param context - any context, the application context is used
+     */
+    public static void preload(@NonNull Context context) {
+        PermissionStores.encrypted(context);
+        RequestLedger.get(context);
+    }
+
+    /**
+     * set the range of request codes GiveMe uses for requestPermissions and startActivityForResult.
+     * change it if the default range (0x7A00 - 0x7BFF) is used by your app
+     *
+     * @param first - the first code
+     * @param count - number of codes, first + count - 1 must be up to 0xFFFF
+     */
+    public static void setRequestCodeRange(int first, int count) {
+        RequestCodes.setRange(first, count);
+    }
+
+    /**
+     * set where the latency and outcome metrics of all the GiveMe instances go. nothing is measured while it's null.
+     * see PermissionMetricsRecorder
+     *
+     * @param metrics - PermissionMetrics: the metrics destination, null to stop measuring
+     */
+    public static void setMetrics(@Nullable PermissionMetrics metrics) {
+        Metrics.set(metrics);
+    }
+
+    /**
+     * set when a permission that was not granted may be asked again by requestPermissionsWithForce and
+     * requestPermissionsWithDialog. permissions the policy holds back go to onBackoff and are not asked.
+     * default BackoffPolicy.NONE, always ask
+     *
+     * @param backoffPolicy - BackoffPolicy: the policy, null for BackoffPolicy.NONE
+     */
+    public void setBackoffPolicy(@Nullable BackoffPolicy backoffPolicy) {
+        this.backoffPolicy = backoffPolicy != null ? backoffPolicy : BackoffPolicy.NONE;
+    }
+
+    /**
+     * set where the GrantListener callbacks and the PermissionFuture results run. the callbacks of a request keep
+     * their order on any executor. default null, the main thread
+     *
+     * @param executor - Executor: where the callbacks run, null for the main thread
+     */
+    public void setCallbackExecutor(@Nullable Executor executor) {
+        callbackExecutor.set(executor);
+    }
+
+    /**
+     * set how the dialogs of GiveMe are shown. the DialogListener still gets the buttons.
+     * default null, an AlertDialog with the texts from the library resources
+     *
+     * @param promptRenderer - PromptRenderer: shows the dialogs, null for the default
+     */
+    public void setPromptRenderer(@Nullable PromptRenderer promptRenderer) {
+        this.promptRenderer = promptRenderer;
+    }
+
+    /**
+     * save the requests that wait for results (a system dialog or the app setting), so they are not lost
+     * when the activity is recreated. call from Activity.onSaveInstanceState
+     *
+     * @param outState - the Bundle of onSaveInstanceState
+     */
+    public void onSaveInstanceState(@NonNull Bundle outState) {
+        ArrayList<RequestTable.Entry> entries = inFlight.entries();
+        if (entries.isEmpty())
+            return;
+        int size = entries.size();
+        int[] codes = new int[size];
+        long[] startTimes = new long[size];
+        boolean[] settings = new boolean[size];
+        Bundle state = new Bundle();
+        for (int i = 0; i < size; i++) {
+            RequestTable.Entry entry = entries.get(i);
+            codes[i] = entry.requestCode;
+            startTimes[i] = entry.startTime;
+            settings[i] = entry.isSetting();
+            state.putStringArray(KEY_PERMISSIONS + i, entry.permissions.toArray());
+        }
+        state.putIntArray(KEY_CODES, codes);
+        state.putLongArray(KEY_START_TIMES, startTimes);
+        state.putBooleanArray(KEY_SETTINGS, settings);
+        outState.putBundle(KEY_STATE, state);
+        logger("saved {} requests", size);
+    }
+
+    /**
+     * restore the requests saved by onSaveInstanceState. their results go to the GrantListener of this GiveMe,
+     * listeners and PermissionFuture of the old activity can't be restored.
+     * call from Activity.onCreate after the GiveMe is created
+     *
+     * @param savedInstanceState - the Bundle of onCreate / onRestoreInstanceState, may be null
+     */
+    public void onRestoreInstanceState(@Nullable Bundle savedInstanceState) {
+        Bundle state = savedInstanceState != null ? savedInstanceState.getBundle(KEY_STATE) : null;
+        if (state == null)
+            return;
+        int[] codes = state.getIntArray(KEY_CODES);
+        long[] startTimes = state.getLongArray(KEY_START_TIMES);
+        boolean[] settings = state.getBooleanArray(KEY_SETTINGS);
+        if (codes == null || startTimes == null || settings == null)
+            return;
+        long now = SystemClock.elapsedRealtime();
+        for (int i = 0; i < codes.length; i++) {
+            String[] permissions = state.getStringArray(KEY_PERMISSIONS + i);
+            if (permissions == null)
+                continue;
+            PermissionSet set = PermissionSet.of(permissions);
+            if (settings[i]) {
+                inFlight.put(new RequestTable.Entry(codes[i], set, null, null, startTimes[i]), now);
+            } else {
+                ArrayList<RequestScheduler.PendingRequest> requests = new ArrayList<>(1);
+                // the listener is read when the results arrive, so a listener set after restore gets them
+                requests.add(new RequestScheduler.PendingRequest(set, 0L,
+                        (requested, results) -> notifyResults(callbackListener(grantListener.get()), requested, results), dispatcher));
+                inFlight.put(new RequestTable.Entry(codes[i], set, requests, null, startTimes[i]), now);
+                scheduler().restoreInFlight(set, requests);
             }
-            return true;
         }
-        return false;
+        // the recreated activity may never get the results either
+        scheduleExpiry(now);
+        logger("restored {} requests", codes.length);
+    }
+
+    public boolean onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        logger("at onActivityResult");
+        RequestTable.Entry entry = inFlight.get(requestCode);
+        if (entry == null || !entry.isSetting())
+            return false;
+        inFlight.remove(requestCode);
+        scheduleExpiry(SystemClock.elapsedRealtime());
+        Metrics.latencyMillis(PermissionMetrics.Stage.SETTING_SCREEN, entry.startTime, SystemClock.elapsedRealtime());
+        logger("requestCode is ok, start checking");
+        PermissionSnapshot results = engine.resultSnapshot(entry.permissions.toArray(), null);
+        recordOutcomes(results);
+        // a restored entry has no listener, use the current one
+        notifyResults(entry.listener != null ? entry.listener : callbackListener(grantListener.get()), entry.permissions, results);
+        PermissionWatcher.onRequestCompleted();
+        return true;
     }
 
 
     public boolean onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
 
         logger("at onRequestPermissionsResult");
-        if (requestCode == REQUEST_CODE) {
-            logger("REQUEST_CODE is ok, start checking");
-            ArrayList<String> notGranted = new ArrayList<>();
-            ArrayList<String> neverAskAgain = new ArrayList<>();
-            boolean allGranted = true;
-            for (int i = 0, len = permissions.length; i < len; i++) {
-                String permission = permissions[i];
-                if (grantResults[i] == PackageManager.PERMISSION_DENIED) {
-                    allGranted = false;
-                    // user rejected the permission
-                    if (!activity.shouldShowRequestPermissionRationale(permission)) {
-                        // user also CHECKED "never ask again"
-                        logger("the permission " + permission + " mark as \"don't ask again\"");
-                        neverAskAgain.add(permission);
-                    } else {
-                        // user did NOT check "never ask again"
-                        logger("the permission " + permission + " not granted");
-                        notGranted.add(permission);
-                    }
-                } else {
-                    logger("the permission " + permission + " granted");
-
-                }
-            }
-            if (neverAskAgain.size() > 0) {
-                logger("the permissions " + neverAskAgain + " mark as \"don't ask again\"");
-                grantListener.onNeverAskAgain(neverAskAgain.toArray(new String[0]));
-            }
-            if (notGranted.size() > 0) {
-                logger("the permissions " + notGranted + " not granted");
-
-                grantListener.onNotGranted(notGranted.toArray(new String[0]));
-            }
-            logger("all granted?  " + allGranted);
-            grantListener.onGranted(allGranted);
-            return true;
+        RequestTable.Entry entry = inFlight.get(requestCode);
+        if (entry == null || entry.requests == null) {
+            logger("requestCode is not ok");
+            return false;
         }
-        logger("REQUEST_CODE is not ok");
-
-        return false;
+        inFlight.remove(requestCode);
+        scheduleExpiry(SystemClock.elapsedRealtime());
+        Metrics.latencyMillis(PermissionMetrics.Stage.SYSTEM_DIALOG, entry.startTime, SystemClock.elapsedRealtime());
+        logger("requestCode is ok, start checking");
+        PermissionSnapshot results = engine.resultSnapshot(permissions, grantResults);
+        recordOutcomes(results);
+        scheduler().onResults(entry.requests, results);
+        PermissionWatcher.onRequestCompleted();
+        return true;
     }
 
 
@@ -142,26 +291,64 @@ public class GiveMe {
      * @param dialogListener - DialogListener: callback to perform on buttons click
      */
     public void askPermissionsFromSetting(String msg, String[] permissions, DialogListener dialogListener) {
+        startFromSetting(msg, permissions, dialogListener, grantListener.get());
+    }
+
+    private void startFromSetting(String msg, String[] permissions, DialogListener dialogListener, GrantListener grantListener) {
         logger("at askPermissionsFromSetting");
-        permissionsForResults = permissions;
-        new AlertDialog.Builder(activity)
-                .setTitle("Permission denied")
-                .setMessage(msg)
-                .setPositiveButton("RE TRY", (dialog, which) -> {
-                    logger("Positive Button pressed");
-                    intentToSetting();
-                    if (dialogListener != null)
-                        dialogListener.onPositiveButton();
-                })
-                .setNegativeButton("I'M SURE", (dialog, which) -> {
-                    logger("Negative Button pressed");
-                    if (dialogListener != null)
-                        dialogListener.onNegativeButton();
+        long start = Metrics.start();
+        GrantListener requestListener = callbackListener(grantListener);
+        runOnMain(() -> {
+            String[] normalized = engine.normalize(permissions);
+            GrantListener listener = rejectUndeclared(normalized, requestListener);
+            showSettingDialog(msg, engine.declared(normalized), listener, dialogListener, start);
+        });
+    }
+
+    /**
+     * @param listener   - the GrantListener of the request
+     * @param startNanos - Metrics.start() of the flow
+     */
+    private void showSettingDialog(String msg, String[] permissions, GrantListener listener, DialogListener dialogListener, long startNanos) {
+        Metrics.latency(PermissionMetrics.Stage.TIME_TO_DIALOG, startNanos);
+        long shownAt = Metrics.start();
+        PromptRenderer.Prompt prompt = new PromptRenderer.Prompt(PromptRenderer.Prompt.Kind.SETTING, null, msg, permissions);
+        renderer().show(activity, prompt, new PromptRenderer.Actions() {
+            @Override
+            public void onPositive() {
+                logger("Positive Button pressed");
+                intentToSetting(permissions, listener);
+                if (dialogListener != null)
+                    dialogListener.onPositiveButton();
+            }
 
-                })
-                .setIcon(android.R.drawable.ic_dialog_info)
-                .show();
+            @Override
+            public void onNegative() {
+                logger("Negative Button pressed");
+                recordDeclined(permissions);
+                if (dialogListener != null)
+                    dialogListener.onNegativeButton();
+            }
+
+            @Override
+            public void onDismiss() {
+                Metrics.latency(PermissionMetrics.Stage.SETTING_DIALOG, shownAt);
+            }
+        });
+    }
 
+    /**
+     * main thread
+     *
+     * @return the PromptRenderer that was set or the default one
+     */
+    private PromptRenderer renderer() {
+        PromptRenderer renderer = promptRenderer;
+        if (renderer != null)
+            return renderer;
+        if (defaultRenderer == null)
+            defaultRenderer = new AlertDialogRenderer();
+        return defaultRenderer;
     }
 
 
@@ -175,7 +362,7 @@ public class GiveMe {
      */
     public void askPermissionsFromSetting(String msg, String[] permissions, @NonNull GrantListener grantListener, DialogListener dialogListener) {
         setGrantListener(grantListener);
-        askPermissionsFromSetting(msg, permissions, dialogListener);
+        startFromSetting(msg, permissions, dialogListener, grantListener);
 
     }
 
@@ -191,7 +378,7 @@ public class GiveMe {
      */
     public void requestPermissionsWithForce(@NonNull String[] permissions, @NonNull GrantListener grantListener, String msg, DialogListener dialogListener) {
         setGrantListener(grantListener);
-        requestPermissionsWithForce(permissions, msg, dialogListener);
+        startWithForce(permissions, msg, dialogListener, grantListener);
 
     }
 
@@ -204,19 +391,18 @@ public class GiveMe {
      * @param dialogListener - DialogListener: callback to perform on buttons click
      */
     public void requestPermissionsWithForce(@NonNull String[] permissions, String msg, DialogListener dialogListener) {
-        logger("at requestPermissionsWithForce");
-        String[] notGranted = notGrantedYetFilter(permissions);
-        if (notGranted.length == 0) {
-            logger("noting to ask, all granted");
-            grantListener.onGranted(true);
-            return;
-        }
-
-        if (shouldShowRequestPermissionRationaleForAllPermissions(notGranted) || //asked in the past but "don't ask me again" set off
-                !isPermissionsListAskedBefore(notGranted)) // never asked before
-            askForPermission(notGranted);
-        else askPermissionsFromSetting(msg, permissions, dialogListener);
+        startWithForce(permissions, msg, dialogListener, grantListener.get());
+    }
 
+    private void startWithForce(@NonNull String[] permissions, String msg, DialogListener dialogListener, GrantListener grantListener) {
+        logger("at requestPermissionsWithForce");
+        long start = Metrics.start();
+        GrantListener requestListener = callbackListener(grantListener);
+        runOnMain(() -> {
+            PreparedRequest request = prepare(permissions, requestListener);
+            PermissionFlow.force(request.snapshot, request.permissions, request.listener,
+                    new FlowSteps(null, msg, dialogListener, start));
+        });
     }
 
 
@@ -232,7 +418,7 @@ public class GiveMe {
      */
     public void requestPermissionsWithDialog(@NonNull String[] permissions, @NonNull GrantListener grantListener, String title, String msg, DialogListener dialogListener) {
         setGrantListener(grantListener);
-        requestPermissionsWithDialog(permissions, title, msg, dialogListener);
+        startWithDialog(permissions, title, msg, dialogListener, grantListener);
 
 
     }
@@ -247,37 +433,54 @@ public class GiveMe {
      * @param dialogListener - DialogListener: callback to perform on buttons click
      */
     public void requestPermissionsWithDialog(@NonNull String[] permissions, String title, String msg, DialogListener dialogListener) {
+        startWithDialog(permissions, title, msg, dialogListener, grantListener.get());
+    }
+
+    private void startWithDialog(@NonNull String[] permissions, String title, String msg, DialogListener dialogListener, GrantListener grantListener) {
         logger("at requestPermissionsWithDialog");
-        String[] notGranted = notGrantedYetFilter(permissions);
-        if (notGranted.length == 0) {
-            logger("noting to ask, all granted");
-            grantListener.onGranted(true);
-            return;
-        }
-        new AlertDialog.Builder(activity)
-                .setTitle(title)
-                .setMessage(msg)
-                .setPositiveButton("Agree", (dialog, which) -> {
-                    logger("Positive Button pressed");
-                    if (shouldShowRequestPermissionRationaleForAllPermissions(notGranted) || //asked in the past but "don't ask me again" set off
-                            !isPermissionsListAskedBefore(notGranted)) { // never asked before
-                        askForPermission(notGranted);
-                    } else { // don't ask me again
-                        intentToSetting();
-                        permissionsForResults = permissions;
-                    }
-                    if (dialogListener != null)
-                        dialogListener.onPositiveButton();
-                })
-                .setNegativeButton("Decline", (dialog, which) -> {
-                    logger("Negative Button pressed");
-
-                    if (dialogListener != null)
-                        dialogListener.onNegativeButton();
-
-                })
-                .setIcon(android.R.drawable.ic_dialog_info)
-                .show();
+        long start = Metrics.start();
+        GrantListener requestListener = callbackListener(grantListener);
+        runOnMain(() -> {
+            PreparedRequest request = prepare(permissions, requestListener);
+            PermissionFlow.dialog(request.snapshot, request.permissions, request.listener,
+                    new FlowSteps(title, msg, dialogListener, start));
+        });
+    }
+
+    /**
+     * main thread
+     *
+     * @param steps - the steps of the flow, the positive button continues with them
+     */
+    private void showRationaleDialog(@NonNull PermissionSnapshot snapshot, @NonNull String[] permissions, GrantListener listener,
+                                     String title, String msg, DialogListener dialogListener, FlowSteps steps) {
+        Metrics.latency(PermissionMetrics.Stage.TIME_TO_DIALOG, steps.startNanos);
+        // the user saw a dialog, the system dialog is not measured from the start of the flow
+        steps.startNanos = 0L;
+        long shownAt = Metrics.start();
+        PromptRenderer.Prompt prompt = new PromptRenderer.Prompt(PromptRenderer.Prompt.Kind.RATIONALE, title, msg, snapshot.getDeniedPermissions());
+        renderer().show(activity, prompt, new PromptRenderer.Actions() {
+            @Override
+            public void onPositive() {
+                logger("Positive Button pressed");
+                PermissionFlow.rationaleAccepted(snapshot, permissions, listener, steps);
+                if (dialogListener != null)
+                    dialogListener.onPositiveButton();
+            }
+
+            @Override
+            public void onNegative() {
+                logger("Negative Button pressed");
+                recordDeclined(snapshot.getDeniedPermissions());
+                if (dialogListener != null)
+                    dialogListener.onNegativeButton();
+            }
+
+            @Override
+            public void onDismiss() {
+                Metrics.latency(PermissionMetrics.Stage.RATIONALE_DIALOG, shownAt);
+            }
+        });
     }
 
     /**
@@ -288,7 +491,7 @@ public class GiveMe {
      */
     public void requestPermissions(@NonNull String[] permissions, @NonNull GrantListener grantListener) {
         setGrantListener(grantListener);
-        requestPermissions(permissions);
+        startRequest(permissions, grantListener, Metrics.start());
 
 
     }
@@ -301,29 +504,185 @@ public class GiveMe {
      * @param permissions - String array of permissions
      */
     public void requestPermissions(@NonNull String[] permissions) {
-        String[] notGranted = notGrantedYetFilter(permissions);
-        if (notGranted.length == 0) {
-            logger("noting to ask, all granted");
-            grantListener.onGranted(true);
+        startRequest(permissions, grantListener.get(), Metrics.start());
+    }
+
+    private void startRequest(@NonNull String[] permissions, GrantListener grantListener, long start) {
+        GrantListener requestListener = callbackListener(grantListener);
+        runOnMain(() -> {
+            String[] normalized = engine.normalize(permissions);
+            GrantListener listener = rejectUndeclared(normalized, requestListener);
+            PermissionSet notGranted = notGrantedYetFilter(engine.declared(normalized));
+            PermissionFlow.request(notGranted, listener, new FlowSteps(null, null, null, start));
+        });
+    }
+
+
+    /**
+     * request permissions from the user without a GrantListener. the result arrives on the callback executor,
+     * see {@link #setCallbackExecutor(Executor)}. this method not handling "don't ask me again", see PermissionResult.getNeverAskAgain()
+     *
+     * @param permissions - String array of permissions
+     * @return future of the result: add callbacks with then(), chain requests with thenRequest() or cancel()
+     */
+    @NonNull
+    public PermissionFuture requestPermissionsAsync(@NonNull String[] permissions) {
+        logger("at requestPermissionsAsync");
+        long start = Metrics.start();
+        PermissionFuture future = new PermissionFuture();
+        Executor executor = callbackExecutorOrMain();
+        runOnMain(() -> {
+            if (future.isCancelled())
+                return;
+            String[] normalized = engine.normalize(permissions);
+            String[] declared = engine.declared(normalized);
+            PermissionSet all = PermissionSet.of(normalized);
+            PermissionSet undeclared = declared == normalized ? PermissionSet.empty() : all.difference(PermissionSet.of(declared));
+            PermissionSet notGranted = notGrantedYetFilter(declared);
+            PermissionSet alreadyGranted = all.difference(notGranted).difference(undeclared);
+            if (notGranted.isEmpty()) {
+                logger("noting to ask, all granted");
+                PermissionResult result = undeclared.isEmpty() ? PermissionResult.allGranted(all)
+                        : PermissionResult.of(all, alreadyGranted, undeclared, PermissionSnapshot.EMPTY);
+                executor.execute(() -> future.complete(result));
+                return;
+            }
+            StagedRequest request = new StagedRequest(notGranted, (requested, results) -> {
+                PermissionResult result = PermissionResult.of(all, alreadyGranted, undeclared, results);
+                Metrics.outcome(result.getGranted().size(), result.getNotGranted().size(), result.getNeverAskAgain().size());
+                executor.execute(() -> future.complete(result));
+            });
+            request.start(start);
+            future.setOnCancel(() -> mainHandler.post(request::cancel));
+        });
+        return future;
+    }
+
+    /**
+     * get the status of permissions with one system check per permission. safe on any thread, doesn't wait for the main thread
+     *
+     * @param permissions - String array of permissions
+     * @return immutable snapshot of the permissions state
+     */
+    @NonNull
+    public PermissionSnapshot getPermissionSnapshot(@NonNull String[] permissions) {
+        PermissionSnapshot snapshot = engine.snapshot(permissions);
+        logger("getPermissionSnapshot: {}", snapshot);
+        return snapshot;
+    }
+
+    /**
+     * call the GrantListener once with the results of the permissions it asked for
+     *
+     * @param listener  - the GrantListener of the request, null after a restore if no GrantListener was set
+     * @param requested - the permissions the request asked for
+     * @param results   - the snapshot of the results, may have more permissions than requested
+     */
+    private void notifyResults(@Nullable GrantListener listener, PermissionSet requested, PermissionSnapshot results) {
+        logger("results: {}", results);
+        if (listener == null) {
+            logger("no GrantListener for the results of {}", requested);
             return;
         }
-        logger("request permissions");
-        askForPermission(notGranted);
+        PermissionEngine.deliver(listener, requested, results);
     }
 
+    /**
+     * report the permissions that are not declared in the manifest to onUndeclared. they are not asked
+     *
+     * @param permissions - the normalized permissions of the request
+     * @param listener    - the GrantListener of the request
+     * @return the GrantListener for the rest of the request, onGranted is always false if some were rejected
+     */
+    private GrantListener rejectUndeclared(@NonNull String[] permissions, GrantListener listener) {
+        String[] undeclared = engine.undeclared(permissions);
+        if (undeclared.length == 0)
+            return listener;
+        logger("the permissions {} are not declared in the manifest", Arrays.asList(undeclared));
+        listener.onUndeclared(undeclared);
+        return PartialListener.wrap(listener);
+    }
 
     /**
-     * @param list - string array of Permissions for example: {Manifest.permission.ACCESS_FINE_LOCATION,Manifest.permission.READ_CALENDAR}
-     * @return true if all the permissions already granted
+     * the declared permissions of a request that may be asked now, with their state and the GrantListener
+     * of the request
+     *
+     * @param permissions   - the permissions of the request
+     * @param grantListener - the GrantListener of the request
+     * @return the request without the undeclared permissions and the ones the BackoffPolicy holds back
      */
-    private boolean checkPermissionsList(String[] list) {
-        for (String s : list) {
-            if (!checkSinglePermission(s)) {
-                logger("the permission " + s + " not granted yet");
-                return false;
+    private PreparedRequest prepare(@NonNull String[] permissions, GrantListener grantListener) {
+        String[] normalized = engine.normalize(permissions);
+        GrantListener listener = rejectUndeclared(normalized, grantListener);
+        String[] declared = engine.declared(normalized);
+        PermissionSnapshot snapshot = getPermissionSnapshot(declared);
+        PermissionSet heldBack = heldBack(snapshot);
+        if (!heldBack.isEmpty()) {
+            logger("the BackoffPolicy holds back {}", heldBack);
+            listener.onBackoff(heldBack.toArray());
+            listener = PartialListener.wrap(listener);
+            declared = PermissionSet.of(declared).difference(heldBack).toArray();
+            snapshot = getPermissionSnapshot(declared);
+        }
+        return new PreparedRequest(declared, snapshot, listener);
+    }
+
+    /**
+     * @param snapshot - the state of the permissions of the request
+     * @return the permissions that are not granted and the BackoffPolicy doesn't allow to ask now
+     */
+    private PermissionSet heldBack(@NonNull PermissionSnapshot snapshot) {
+        BackoffPolicy policy = backoffPolicy;
+        if (policy == BackoffPolicy.NONE || snapshot.isAllGranted())
+            return PermissionSet.empty();
+        RequestLedger ledger = RequestLedger.get(activity);
+        long now = System.currentTimeMillis();
+        ArrayList<String> heldBack = new ArrayList<>();
+        for (int i = 0; i < snapshot.size(); i++) {
+            String permission = snapshot.getPermission(i);
+            if (snapshot.getState(i).isDenied() && !policy.allows(ledger.getEntry(permission), now))
+                heldBack.add(permission);
+        }
+        return PermissionSet.of(heldBack.toArray(new String[0]));
+    }
+
+    /**
+     * record the results of a system dialog or an app setting visit in the RequestLedger
+     *
+     * @param results - the results
+     */
+    private void recordOutcomes(@NonNull PermissionSnapshot results) {
+        if (results.size() == 0)
+            return;
+        RequestLedger ledger = RequestLedger.get(activity);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < results.size(); i++) {
+            RequestLedger.Outcome outcome;
+            switch (results.getState(i)) {
+                case GRANTED:
+                    outcome = RequestLedger.Outcome.GRANTED;
+                    break;
+                case NEVER_ASK_AGAIN:
+                    outcome = RequestLedger.Outcome.NEVER_ASK_AGAIN;
+                    break;
+                default:
+                    outcome = RequestLedger.Outcome.DENIED;
+                    break;
             }
+            ledger.record(results.getPermission(i), outcome, now);
         }
-        return true;
+    }
+
+    /**
+     * record in the RequestLedger that the user declined the dialog of GiveMe
+     *
+     * @param permissions - the permissions of the dialog that are not granted
+     */
+    private void recordDeclined(@NonNull String[] permissions) {
+        RequestLedger ledger = RequestLedger.get(activity);
+        long now = System.currentTimeMillis();
+        for (String permission : permissions)
+            ledger.record(permission, RequestLedger.Outcome.DECLINED, now);
     }
 
     /**
@@ -342,47 +701,141 @@ public class GiveMe {
      * @param grantListener - GrantListener - set as default
      */
     public void setGrantListener(GrantListener grantListener) {
-        this.grantListener = grantListener;
+        this.grantListener.set(grantListener);
         logger("new GrantListener was set");
     }
 
     /**
-     * ask for permissions from the user
+     * @param listener - the GrantListener of a request
+     * @return the GrantListener that runs the callbacks of the request in order on the callback executor
+     */
+    private GrantListener callbackListener(@Nullable GrantListener listener) {
+        return listener == null ? null : new ExecutorListener(listener, new SerialExecutor(callbackExecutorOrMain()));
+    }
+
+    /**
+     * main thread
      *
-     * @param permissions - String array of permissions
+     * @return the RequestScheduler of the activity
+     */
+    private RequestScheduler scheduler() {
+        if (scheduler == null)
+            scheduler = RequestScheduler.of(activity, mainHandler);
+        return scheduler;
+    }
+
+    private Executor callbackExecutorOrMain() {
+        Executor executor = callbackExecutor.get();
+        return executor != null ? executor : mainExecutor;
+    }
+
+    /**
+     * run now if on the main thread, otherwise post to it
+     *
+     * @param task - the task
      */
-    private void askForPermission(@NonNull String[] permissions) {
+    private void runOnMain(@NonNull Runnable task) {
+        if (Looper.myLooper() == Looper.getMainLooper())
+            task.run();
+        else
+            mainHandler.post(task);
+    }
+
+    /**
+     * ask for permissions from the user. requests made close together are merged into one system dialog,
+     * each with the GrantListener that was set when it was made. permissions that depend on others are asked
+     * after them, see StagedRequest
+     *
+     * @param permissions - the permissions to ask
+     * @param listener    - the GrantListener of the request
+     * @param startNanos  - Metrics.start() of the flow, 0 if the user already saw a dialog
+     */
+    private void askForPermission(@NonNull PermissionSet permissions, GrantListener listener, long startNanos) {
         logger("at askForPermission");
-        markPermissionsListAsAsked(permissions);
-        activity.requestPermissions(permissions, REQUEST_CODE);
+        new StagedRequest(permissions, (requested, results) -> notifyResults(listener, requested, results)).start(startNanos);
     }
 
     /**
-     * make intent to app setting
+     * @return a request code that is not in flight. after a restore the allocator may give a code that is still in use
      */
-    private void intentToSetting() {
-        logger("perform intent to the app setting");
-        Intent intent = new Intent(Settings.ACTION_APPLICATION_DETAILS_SETTINGS);
-        Uri uri = Uri.fromParts("package", activity.getPackageName(), null);
-        intent.setData(uri);
-        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-        activity.startActivityForResult(intent, SETTING_REQUEST_CODE);
+    private int nextRequestCode() {
+        int requestCode = RequestCodes.next();
+        for (int attempts = 1; inFlight.get(requestCode) != null && attempts < RequestCodes.count(); attempts++)
+            requestCode = RequestCodes.next();
+        return requestCode;
+    }
+
+    /**
+     * show the system dialog for the merged requests of the scheduler
+     *
+     * @param permissions - the permissions to ask
+     * @param requests    - the requests waiting for the results
+     */
+    private void sendRequest(@NonNull PermissionSet permissions, @NonNull ArrayList<RequestScheduler.PendingRequest> requests) {
+        int requestCode = nextRequestCode();
+        long now = SystemClock.elapsedRealtime();
+        inFlight.put(new RequestTable.Entry(requestCode, permissions, requests, null, now), now);
+        scheduleExpiry(now);
+        for (RequestScheduler.PendingRequest request : requests)
+            Metrics.latency(PermissionMetrics.Stage.TIME_TO_DIALOG, request.startNanos);
+        engine.request(permissions, requestCode);
     }
 
     /**
-     * check if permissions asked in the past
+     * the put of the next request is not enough to expire the entries: the scheduler sends no request while
+     * a system dialog is in flight, so a result that never comes would block the activity for good
      *
-     * @param permissions - the permissions to check
-     * @return - true if all asked before , false if at least one not
+     * @param now - SystemClock.elapsedRealtime()
      */
-    private boolean isPermissionsListAskedBefore(@NonNull String[] permissions) {
-        for (String permission : permissions) {
-            if (!isPermissionAskedBefore(permission)) {
-                logger("the permission " + permission + " never asked before");
-                return false;
+    private void scheduleExpiry(long now) {
+        mainHandler.removeCallbacks(expireTask);
+        long next = inFlight.nextExpiry();
+        if (next != Long.MAX_VALUE)
+            mainHandler.postDelayed(expireTask, Math.max(0L, next - now));
+    }
+
+    private void expireInFlight() {
+        long now = SystemClock.elapsedRealtime();
+        inFlight.expire(now);
+        scheduleExpiry(now);
+    }
+
+    /**
+     * the result of a request didn't arrive in {@link RequestTable#EXPIRE_AFTER_MS}. the requests get the current
+     * state of their permissions so their listeners and futures don't wait forever. posted, the table is in the
+     * middle of put
+     *
+     * @param entry - the expired entry
+     */
+    private void onExpired(@NonNull RequestTable.Entry entry) {
+        logger("request {} expired", entry.requestCode);
+        if (entry.requests != null)
+            scheduler().release(entry.requests);
+        mainHandler.post(() -> {
+            PermissionSnapshot results = engine.resultSnapshot(entry.permissions.toArray(), null);
+            if (entry.requests != null) {
+                for (RequestScheduler.PendingRequest request : entry.requests)
+                    request.callback.onResults(request.permissions, results);
+            } else {
+                // a restored entry has no listener, use the current one
+                notifyResults(entry.listener != null ? entry.listener : callbackListener(grantListener.get()), entry.permissions, results);
             }
-        }
-        return true;
+        });
+    }
+
+    /**
+     * make intent to app setting. the permissions are checked on onActivityResult
+     *
+     * @param permissions - the permissions to check when the user is back
+     * @param listener    - the GrantListener of the request
+     */
+    private void intentToSetting(@NonNull String[] permissions, GrantListener listener) {
+        logger("perform intent to the app setting");
+        int requestCode = nextRequestCode();
+        long now = SystemClock.elapsedRealtime();
+        inFlight.put(new RequestTable.Entry(requestCode, PermissionSet.of(permissions), null, listener, now), now);
+        scheduleExpiry(now);
+        engine.openSettings(requestCode);
     }
 
     /**
@@ -392,7 +845,7 @@ public class GiveMe {
      * @return - true if asked before , false if not
      */
     private boolean isPermissionAskedBefore(@NonNull String permission) {
-        return msp.getBoolean(permission, false);
+        return store.isAskedBefore(permission);
     }
 
     /**
@@ -401,10 +854,12 @@ public class GiveMe {
      * @param permissions - List of permissions to mark that asked in the past
      */
     private void markPermissionsListAsAsked(@NonNull String[] permissions) {
-        for (String permission : permissions) {
-            logger("mark the permission " + permission + " as asked");
-            msp.putBoolean(permission, true);
+        if (debug) {
+            for (String permission : permissions) {
+                logger("mark the permission {} as asked", permission);
+            }
         }
+        store.markAsAsked(permissions);
     }
 
     /**
@@ -413,38 +868,301 @@ public class GiveMe {
      * @param permissions - the permissions that need to ask
      * @return the permissions that not granted yed
      */
-    private String[] notGrantedYetFilter(@NonNull String[] permissions) {
-        ArrayList<String> notGranted = new ArrayList<>();
-        for (String permission : permissions) {
-            if (!checkSinglePermission(permission))
-                notGranted.add(permission);
-        }
-        logger("notGrantedYetFilter: the list after filtering: " + notGranted);
-        return notGranted.toArray(new String[0]);
-    }
-
-    private boolean shouldShowRequestPermissionRationaleForAllPermissions(@NonNull String[] permissions) {
-        for (String permission : permissions) {
-            if (!shouldShowRequestPermissionRationale(permission)) {
-                logger("at shouldShowRequestPermissionRationaleForAllPermissions\n" +
-                        "\"shouldShowRequestPermissionRationale return false for permission \" " + permission);
-                return false;
-            }
-        }
-        return true;
+    private PermissionSet notGrantedYetFilter(@NonNull String[] permissions) {
+        PermissionSet result = engine.notGranted(permissions);
+        logger("notGrantedYetFilter: the list after filtering: {}", result);
+        return result;
     }
 
     private boolean shouldShowRequestPermissionRationale(String permission) {
         return activity.shouldShowRequestPermissionRationale(permission);
     }
 
+    /**
+     * the PermissionHost of the engine: the activity and the PermissionStore
+     */
+    private final class ActivityHost implements PermissionHost {
+        @Override
+        public boolean isGranted(@NonNull String permission) {
+            return checkSinglePermission(permission);
+        }
+
+        @Override
+        public boolean shouldShowRationale(@NonNull String permission) {
+            return shouldShowRequestPermissionRationale(permission);
+        }
+
+        @Override
+        public boolean isDeclared(@NonNull String permission) {
+            return ManifestPermissions.get(activity).isDeclared(permission);
+        }
+
+        @Override
+        public boolean isAskedBefore(@NonNull String permission) {
+            return isPermissionAskedBefore(permission);
+        }
+
+        @Override
+        public void markAsAsked(@NonNull String[] permissions) {
+            markPermissionsListAsAsked(permissions);
+        }
+
+        @Override
+        public void requestPermissions(@NonNull String[] permissions, int requestCode) {
+            activity.requestPermissions(permissions, requestCode);
+        }
+
+        @Override
+        public void startSettings(int requestCode) {
+            Intent intent = new Intent(Settings.ACTION_APPLICATION_DETAILS_SETTINGS);
+            Uri uri = Uri.fromParts("package", activity.getPackageName(), null);
+            intent.setData(uri);
+            // no FLAG_ACTIVITY_NEW_TASK: with it the result is RESULT_CANCELED right after the launch,
+            // before the user did anything in the setting
+            activity.startActivityForResult(intent, requestCode);
+        }
+    }
+
     public void setDebug(boolean debug) {
         this.debug = debug;
         logger("debug is set to true and should be for debugging only");
     }
 
+    /**
+     * set where the debug logs are written. default is android.util.Log.d
+     *
+     * @param logSink - LogSink: the logs destination, null for the default
+     */
+    public void setLogSink(@Nullable LogSink logSink) {
+        this.logSink = logSink != null ? logSink : LogSink.LOGCAT;
+    }
+
     private void logger(String msg) {
         if (debug)
-            Log.d(TAG, msg);
+            logSink.log(TAG, msg);
+    }
+
+    /**
+     * nothing is formatted when debug is off. the first "{}" in the message is replaced with the argument
+     */
+    private void logger(String format, Object arg) {
+        if (debug)
+            logSink.log(TAG, format(format, arg));
+    }
+
+    private static String format(String format, Object arg) {
+        int index = format.indexOf("{}");
+        if (index < 0)
+            return format;
+        return new StringBuilder(format.length() + 64)
+                .append(format, 0, index)
+                .append(arg)
+                .append(format, index + 2, format.length())
+                .toString();
+    }
+
+    /**
+     * the steps of one flow of GiveMe: the dialogs with the texts of the call and the system requests. main thread
+     */
+    private final class FlowSteps implements PermissionFlow.Steps {
+        private final String title;
+        private final String msg;
+        private final DialogListener dialogListener;
+        /**
+         * Metrics.start() of the flow, 0 after the user saw a dialog of GiveMe
+         */
+        long startNanos;
+
+        FlowSteps(String title, String msg, DialogListener dialogListener, long startNanos) {
+            this.title = title;
+            this.msg = msg;
+            this.dialogListener = dialogListener;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void request(@NonNull PermissionSet permissions, GrantListener listener) {
+            logger("request permissions");
+            askForPermission(permissions, listener, startNanos);
+        }
+
+        @Override
+        public void showSettingDialog(@NonNull String[] permissions, GrantListener listener) {
+            GiveMe.this.showSettingDialog(msg, permissions, listener, dialogListener, startNanos);
+        }
+
+        @Override
+        public void showRationaleDialog(@NonNull PermissionSnapshot snapshot, @NonNull String[] permissions, GrantListener listener) {
+            GiveMe.this.showRationaleDialog(snapshot, permissions, listener, title, msg, dialogListener, this);
+        }
+
+        @Override
+        public void openSettings(@NonNull String[] permissions, GrantListener listener) {
+            intentToSetting(permissions, listener);
+        }
+    }
+
+    /**
+     * a request whose permissions are asked in ordered system requests (see PermissionStages). the next stage is
+     * asked only if all the permissions of the stage were granted, and the callback gets the results of all the
+     * stages together. a permission of a stage that was not asked counts as not granted
+     */
+    private final class StagedRequest implements RequestScheduler.ResultCallback {
+        private final PermissionSet requested;
+        private final PermissionSet[] stages;
+        private final RequestScheduler.ResultCallback callback;
+        private int stage;
+        private PermissionSnapshot results = PermissionSnapshot.EMPTY;
+        private RequestScheduler.PendingRequest pending;
+        private boolean cancelled;
+
+        StagedRequest(@NonNull PermissionSet requested, @NonNull RequestScheduler.ResultCallback callback) {
+            this.requested = requested;
+            this.stages = engine.stages(requested);
+            this.callback = callback;
+        }
+
+        /**
+         * @param startNanos - Metrics.start() of the flow
+         */
+        void start(long startNanos) {
+            if (stages.length > 1)
+                logger("asking in {} stages", stages.length);
+            pending = scheduler().enqueue(stages[0], startNanos, this, dispatcher);
+        }
+
+        /**
+         * drop the stage that is not sent yet and don't ask the next stages
+         */
+        void cancel() {
+            cancelled = true;
+            scheduler().cancel(pending);
+        }
+
+        @Override
+        public void onResults(@NonNull PermissionSet asked, @NonNull PermissionSnapshot stageResults) {
+            results = results.merge(stageResults);
+            if (++stage < stages.length && !cancelled
+                    && stageResults.getPermissionSet(PermissionSnapshot.State.GRANTED).containsAll(asked)) {
+                logger("stage {} granted, asking the next one", stage);
+                pending = scheduler().enqueue(stages[stage], 0L, this, dispatcher);
+                return;
+            }
+            callback.onResults(requested, results);
+        }
+    }
+
+    /**
+     * GrantListener that runs the callbacks of another one on an executor
+     */
+    private static final class ExecutorListener implements GrantListener {
+        private final GrantListener listener;
+        private final Executor executor;
+
+        ExecutorListener(GrantListener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+
+        @Override
+        public void onGranted(boolean allGranted) {
+            executor.execute(() -> listener.onGranted(allGranted));
+        }
+
+        @Override
+        public void onNotGranted(String[] permissions) {
+            executor.execute(() -> listener.onNotGranted(permissions));
+        }
+
+        @Override
+        public void onNeverAskAgain(String[] permissions) {
+            executor.execute(() -> listener.onNeverAskAgain(permissions));
+        }
+
+        @Override
+        public void onNotGranted(PermissionSet permissions) {
+            executor.execute(() -> listener.onNotGranted(permissions));
+        }
+
+        @Override
+        public void onNeverAskAgain(PermissionSet permissions) {
+            executor.execute(() -> listener.onNeverAskAgain(permissions));
+        }
+
+        @Override
+        public void onUndeclared(String[] permissions) {
+            executor.execute(() -> listener.onUndeclared(permissions));
+        }
+
+        @Override
+        public void onBackoff(String[] permissions) {
+            executor.execute(() -> listener.onBackoff(permissions));
+        }
+    }
+
+    /**
+     * the permissions of a request that are asked, see prepare
+     */
+    private static final class PreparedRequest {
+        final String[] permissions;
+        final PermissionSnapshot snapshot;
+        final GrantListener listener;
+
+        PreparedRequest(@NonNull String[] permissions, @NonNull PermissionSnapshot snapshot, GrantListener listener) {
+            this.permissions = permissions;
+            this.snapshot = snapshot;
+            this.listener = listener;
+        }
+    }
+
+    /**
+     * GrantListener of a request with permissions that are not asked: not declared in the manifest or held back
+     * by the BackoffPolicy. so onGranted is always false
+     */
+    private static final class PartialListener implements GrantListener {
+        private final GrantListener listener;
+
+        private PartialListener(GrantListener listener) {
+            this.listener = listener;
+        }
+
+        static GrantListener wrap(GrantListener listener) {
+            return listener instanceof PartialListener ? listener : new PartialListener(listener);
+        }
+
+        @Override
+        public void onGranted(boolean allGranted) {
+            listener.onGranted(false);
+        }
+
+        @Override
+        public void onNotGranted(String[] permissions) {
+            listener.onNotGranted(permissions);
+        }
+
+        @Override
+        public void onNeverAskAgain(String[] permissions) {
+            listener.onNeverAskAgain(permissions);
+        }
+
+        @Override
+        public void onNotGranted(PermissionSet permissions) {
+            listener.onNotGranted(permissions);
+        }
+
+        @Override
+        public void onNeverAskAgain(PermissionSet permissions) {
+            listener.onNeverAskAgain(permissions);
+        }
+
+        @Override
+        public void onUndeclared(String[] permissions) {
+            listener.onUndeclared(permissions);
+        }
+
+        @Override
+        public void onBackoff(String[] permissions) {
+            listener.onBackoff(permissions);
+        }
     }
 }
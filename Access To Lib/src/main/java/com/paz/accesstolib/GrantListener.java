@@ -6,4 +6,33 @@ public interface GrantListener {
     void onNotGranted(String[] permissions);
 
     void onNeverAskAgain(String[] permissions);
+
+    /**
+     * same as {@link #onNotGranted(String[])} without building an array. by default builds the array and calls it
+     */
+    default void onNotGranted(PermissionSet permissions) {
+        onNotGranted(permissions.toArray());
+    }
+
+    /**
+     * same as {@link #onNeverAskAgain(String[])} without building an array. by default builds the array and calls it
+     */
+    default void onNeverAskAgain(PermissionSet permissions) {
+        onNeverAskAgain(permissions.toArray());
+    }
+
+    /**
+     * the permissions are not declared in the app manifest, the system can't grant them so they are not asked.
+     * called before the other callbacks, and onGranted is called with false. by default does nothing
+     */
+    default void onUndeclared(String[] permissions) {
+    }
+
+    /**
+     * the permissions were asked recently and the BackoffPolicy holds them back, so they are not asked now.
+     * called before the other callbacks, and onGranted is called with false. by default does nothing.
+     * see {@link GiveMe#setBackoffPolicy(BackoffPolicy)}
+     */
+    default void onBackoff(String[] permissions) {
+    }
 }
@@ -0,0 +1,36 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * permissions history that lives only as long as the instance. for tests and short-lived flows
+ */
+class InMemoryPermissionStore implements PermissionStore {
+    private final Set<String> asked = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    @Override
+    public boolean isAskedBefore(@NonNull String permission) {
+        return asked.contains(permission);
+    }
+
+    @Override
+    public void markAsAsked(@NonNull String[] permissions) {
+        Collections.addAll(asked, permissions);
+    }
+
+    @NonNull
+    @Override
+    public Set<String> getAskedPermissions() {
+        return new HashSet<>(asked);
+    }
+
+    @Override
+    public boolean flush() {
+        return true;
+    }
+}
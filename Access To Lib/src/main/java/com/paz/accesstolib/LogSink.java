@@ -0,0 +1,19 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+
+/**
+ * where GiveMe writes its debug logs. called only when debug is on, see {@link GiveMe#setDebug(boolean)}
+ */
+public interface LogSink {
+    /**
+     * the default sink, android.util.Log.d
+     */
+    LogSink LOGCAT = (tag, message) -> android.util.Log.d(tag, message);
+
+    /**
+     * @param tag     - the tag of the log
+     * @param message - the formatted message
+     */
+    void log(@NonNull String tag, @NonNull String message);
+}
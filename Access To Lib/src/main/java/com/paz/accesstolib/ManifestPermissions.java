@@ -0,0 +1,80 @@
+package com.paz.accesstolib;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * the permissions declared in the app manifest (uses-permission). read once from PackageInfo.requestedPermissions
+ * the first time it's needed and shared by all the GiveMe instances of the process
+ */
+final class ManifestPermissions {
+    private static final String TAG = "ManifestPermissions";
+    private static volatile ManifestPermissions instance;
+
+    /**
+     * null if the manifest can't be read, then every permission counts as declared
+     */
+    @Nullable
+    private final Set<String> declared;
+
+    @VisibleForTesting
+    ManifestPermissions(@Nullable Set<String> declared) {
+        this.declared = declared;
+    }
+
+    /**
+     * @param context - any context
+     * @return the declared permissions of the app, loaded on the first call
+     */
+    @NonNull
+    static ManifestPermissions get(@NonNull Context context) {
+        ManifestPermissions manifest = instance;
+        if (manifest == null) {
+            synchronized (ManifestPermissions.class) {
+                manifest = instance;
+                if (manifest == null) {
+                    manifest = new ManifestPermissions(load(context));
+                    instance = manifest;
+                }
+            }
+        }
+        return manifest;
+    }
+
+    @VisibleForTesting
+    static void resetInstance() {
+        instance = null;
+    }
+
+    @Nullable
+    private static Set<String> load(Context context) {
+        try {
+            PackageInfo info = context.getPackageManager().getPackageInfo(context.getPackageName(), PackageManager.GET_PERMISSIONS);
+            if (info.requestedPermissions == null)
+                return Collections.emptySet();
+            return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(info.requestedPermissions)));
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.e(TAG, "can't read the manifest permissions", e);
+            return null;
+        }
+    }
+
+    /**
+     * @param permission - the permission
+     * @return true if the permission is declared in the manifest
+     */
+    boolean isDeclared(@NonNull String permission) {
+        return declared == null || declared.contains(permission);
+    }
+}
@@ -0,0 +1,51 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.Nullable;
+
+/**
+ * the registered PermissionMetrics. when nothing is registered every call is a volatile read and a null check
+ */
+final class Metrics {
+    private static volatile PermissionMetrics metrics;
+
+    private Metrics() {
+    }
+
+    static void set(@Nullable PermissionMetrics metrics) {
+        Metrics.metrics = metrics;
+    }
+
+    /**
+     * @return start time for {@link #latency(PermissionMetrics.Stage, long)}, 0 if nothing is registered
+     */
+    static long start() {
+        return metrics != null ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * @param stage      - the stage
+     * @param startNanos - value of {@link #start()}, 0 records nothing
+     */
+    static void latency(PermissionMetrics.Stage stage, long startNanos) {
+        PermissionMetrics m = metrics;
+        if (m != null && startNanos != 0L)
+            m.onLatency(stage, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @param stage   - the stage
+     * @param startMs - start time in SystemClock.elapsedRealtime ms
+     * @param nowMs   - end time in SystemClock.elapsedRealtime ms
+     */
+    static void latencyMillis(PermissionMetrics.Stage stage, long startMs, long nowMs) {
+        PermissionMetrics m = metrics;
+        if (m != null)
+            m.onLatency(stage, (nowMs - startMs) * 1_000_000L);
+    }
+
+    static void outcome(int granted, int notGranted, int neverAskAgain) {
+        PermissionMetrics m = metrics;
+        if (m != null)
+            m.onOutcome(granted, notGranted, neverAskAgain);
+    }
+}
@@ -0,0 +1,296 @@
+package com.paz.accesstolib;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * permissions history shared by all the processes of the app. the history is one record (see PermissionStateCodec)
+ * in a file, and a small stamp file holds a generation counter that every write increments, both under a file lock.
+ * the stamp is memory mapped, so checking if another process wrote is one memory read. each process keeps the
+ * history in memory and reads the file again only when the stamp changed.
+ * the flags only go from not asked to asked, so a write merges the file with the flags of this process.
+ * not encrypted
+ */
+class MultiProcessPermissionStore implements PermissionStore {
+    private static final String TAG = "MultiProcessStore";
+    private static final String FILE_NAME = "accessto-permissions";
+    private static final String STAMP_SUFFIX = ".stamp";
+    /**
+     * the stamp is one long
+     */
+    private static final int STAMP_SIZE = 8;
+    /**
+     * marks that arrive within this window are written together
+     */
+    private static final long COALESCE_WINDOW_MS = 100;
+    /**
+     * a failed write is tried again after a wait that doubles from COALESCE_WINDOW_MS up to this
+     */
+    private static final long MAX_RETRY_MS = 30_000;
+
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "AccessTo-MP");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * a file lock belongs to the whole process, so the threads of the process take turns before locking
+     */
+    private static final Object PROCESS_LOCK = new Object();
+
+    private final File file;
+    private final File stampFile;
+    private final Future<?> ready;
+    private final Set<String> asked = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    @Nullable
+    private FileChannel stampChannel;
+    @Nullable
+    private MappedByteBuffer stamp;
+    /**
+     * the stamp of the file when it was last read or written by this process
+     */
+    private volatile long seenStamp = -1;
+
+    private final Object pendingLock = new Object();
+    /**
+     * this process marked flags that are not in the file yet
+     */
+    private boolean dirty;
+    private boolean writeScheduled;
+    /**
+     * writes that failed in a row, background thread only
+     */
+    private int failures;
+
+    /**
+     * @param dir - the directory of the files, the same for all the processes
+     */
+    MultiProcessPermissionStore(@NonNull File dir) {
+        file = new File(dir, FILE_NAME);
+        stampFile = new File(dir, FILE_NAME + STAMP_SUFFIX);
+        ready = EXECUTOR.submit(this::open);
+    }
+
+    @Override
+    public boolean isAskedBefore(@NonNull String permission) {
+        refresh();
+        return asked.contains(permission);
+    }
+
+    /**
+     * mark the permissions as asked in memory and write them in the background
+     *
+     * @param permissions - the permissions to mark
+     */
+    @Override
+    public void markAsAsked(@NonNull String[] permissions) {
+        boolean changed = false;
+        for (String permission : permissions)
+            changed |= asked.add(permission);
+        if (!changed)
+            return;
+        synchronized (pendingLock) {
+            dirty = true;
+            if (writeScheduled)
+                return;
+            writeScheduled = true;
+        }
+        EXECUTOR.schedule(this::write, COALESCE_WINDOW_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @NonNull
+    @Override
+    public Set<String> getAskedPermissions() {
+        refresh();
+        return new HashSet<>(asked);
+    }
+
+    /**
+     * write the pending flags and wait for it
+     *
+     * @return true if the write succeeded
+     */
+    @Override
+    public boolean flush() {
+        try {
+            return EXECUTOR.submit(this::write).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            Log.e(TAG, "flush failed", e.getCause());
+            return false;
+        }
+    }
+
+    /**
+     * read the file again if another process wrote it since this process last saw it
+     */
+    private void refresh() {
+        awaitReady();
+        MappedByteBuffer stamp = this.stamp;
+        if (stamp == null || stamp.getLong(0) == seenStamp)
+            return;
+        synchronized (PROCESS_LOCK) {
+            if (stamp.getLong(0) == seenStamp)
+                return;
+            try {
+                FileLock lock = stampChannel.lock(0, Long.MAX_VALUE, true);
+                try {
+                    long current = stamp.getLong(0);
+                    readFile();
+                    seenStamp = current;
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "can't read the permissions history", e);
+            }
+        }
+    }
+
+    /**
+     * runs on the background thread
+     */
+    private void open() {
+        try {
+            RandomAccessFile raf = new RandomAccessFile(stampFile, "rw");
+            if (raf.length() < STAMP_SIZE)
+                raf.setLength(STAMP_SIZE);
+            stampChannel = raf.getChannel();
+            stamp = stampChannel.map(FileChannel.MapMode.READ_WRITE, 0, STAMP_SIZE);
+        } catch (IOException e) {
+            Log.e(TAG, "can't open the stamp, the history is kept in memory only", e);
+        }
+    }
+
+    /**
+     * merge the file with the flags of this process and write it. runs on the background thread
+     */
+    private boolean write() {
+        synchronized (pendingLock) {
+            writeScheduled = false;
+            if (!dirty)
+                return true;
+            dirty = false;
+        }
+        MappedByteBuffer stamp = this.stamp;
+        if (stamp == null)
+            return false;
+        synchronized (PROCESS_LOCK) {
+            try {
+                FileLock lock = stampChannel.lock();
+                try {
+                    long current = stamp.getLong(0);
+                    if (current != seenStamp)
+                        readFile();
+                    // a broken file is replaced with the flags of this process
+                    Map<String, Boolean> record = new HashMap<>(asked.size() * 2);
+                    for (String permission : asked)
+                        record.put(permission, Boolean.TRUE);
+                    File temp = new File(file.getPath() + ".tmp");
+                    try (FileOutputStream out = new FileOutputStream(temp)) {
+                        out.write(PermissionStateCodec.encode(record));
+                        out.getFD().sync();
+                    }
+                    if (!temp.renameTo(file))
+                        throw new IOException("can't replace " + file);
+                    stamp.putLong(0, current + 1);
+                    seenStamp = current + 1;
+                    failures = 0;
+                    return true;
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "can't write the permissions history", e);
+                retryWrite();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * schedule the write again so the flags are not left only in memory. runs on the background thread
+     */
+    private void retryWrite() {
+        synchronized (pendingLock) {
+            dirty = true;
+            if (writeScheduled)
+                return;
+            writeScheduled = true;
+        }
+        long delay = Math.min(COALESCE_WINDOW_MS << Math.min(failures, 16), MAX_RETRY_MS);
+        failures++;
+        EXECUTOR.schedule(this::write, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * add the flags of the file to memory. a broken file is logged and skipped. called with the file lock
+     */
+    private void readFile() {
+        byte[] record;
+        try (FileInputStream in = new FileInputStream(file)) {
+            record = new byte[(int) in.getChannel().size()];
+            int offset = 0;
+            while (offset < record.length) {
+                int read = in.read(record, offset, record.length - offset);
+                if (read < 0)
+                    throw new IOException("the history file got shorter");
+                offset += read;
+            }
+            for (Map.Entry<String, Boolean> entry : PermissionStateCodec.decode(record).entrySet()) {
+                if (entry.getValue())
+                    asked.add(entry.getKey());
+            }
+        } catch (FileNotFoundException e) {
+            // nothing was written yet
+        } catch (IOException e) {
+            Log.e(TAG, "broken permissions history", e);
+        }
+    }
+
+    private void awaitReady() {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    ready.get();
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Log.e(TAG, "open failed", e.getCause());
+                    return;
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+}
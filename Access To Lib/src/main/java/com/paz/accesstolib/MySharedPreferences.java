@@ -4,19 +4,163 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.security.keystore.KeyGenParameterSpec;
 import android.security.keystore.KeyProperties;
+import android.util.Log;
 
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.security.crypto.EncryptedSharedPreferences;
 import androidx.security.crypto.MasterKey;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 class MySharedPreferences {
+    private static final String TAG = "MySharedPreferences";
+    /**
+     * writes that arrive within this window are merged into one encrypted write
+     */
+    @VisibleForTesting
+    static final long COALESCE_WINDOW_MS = 100;
 
-    private SharedPreferences sharedPreferences;
+    /**
+     * single background thread for the keystore work and for the writes, so writes always run
+     * after the store is ready and keep their order
+     */
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "AccessTo-SP");
+        thread.setDaemon(true);
+        return thread;
+    });
 
+    /**
+     * one store of each kind per process, bound to the application context and shared by all the GiveMe instances
+     */
+    private static volatile MySharedPreferences encryptedInstance;
+    private static volatile MySharedPreferences plainInstance;
 
-    public MySharedPreferences(Context appContext) {
+    private final Future<SharedPreferences> sharedPreferences;
+    /**
+     * runs the load and the writes of this store, EXECUTOR outside of the tests
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * pending value of a key that should be removed
+     */
+    private static final Object REMOVED = new Object();
+
+    private final Object pendingLock = new Object();
+    /**
+     * writes waiting for the next flush, key -> Boolean, String or REMOVED
+     */
+    private Map<String, Object> pending = new HashMap<>();
+    /**
+     * the batch that is being written right now, still visible to readers until the editor is done
+     */
+    private Map<String, Object> writing;
+    private boolean flushScheduled;
+
+    private MySharedPreferences(Context appContext, boolean encrypted) {
+        this(EXECUTOR.submit(() -> {
+            long start = Metrics.start();
+            SharedPreferences sp = encrypted ? create(appContext) : createPlain(appContext);
+            Metrics.latency(PermissionMetrics.Stage.STORE_INIT, start);
+            return sp;
+        }), EXECUTOR);
+    }
+
+    /**
+     * @param sharedPreferences - the store, may be still loading
+     * @param executor          - runs the writes, must be single threaded so they keep their order
+     */
+    @VisibleForTesting
+    MySharedPreferences(Future<SharedPreferences> sharedPreferences, ScheduledExecutorService executor) {
+        this.sharedPreferences = sharedPreferences;
+        this.executor = executor;
+    }
+
+    /**
+     * get the encrypted process store. the first call starts loading it in the background, so call it as early
+     * as possible, for example from Application.onCreate
+     *
+     * @param context - any context, the application context is used
+     * @return the process store, may be still loading
+     */
+    static MySharedPreferences getInstance(Context context) {
+        MySharedPreferences msp = encryptedInstance;
+        if (msp == null) {
+            synchronized (MySharedPreferences.class) {
+                msp = encryptedInstance;
+                if (msp == null) {
+                    msp = new MySharedPreferences(applicationContext(context), true);
+                    encryptedInstance = msp;
+                }
+            }
+        }
+        return msp;
+    }
+
+    /**
+     * get the plain (not encrypted) process store
+     *
+     * @param context - any context, the application context is used
+     * @return the process store, may be still loading
+     */
+    static MySharedPreferences getPlainInstance(Context context) {
+        MySharedPreferences msp = plainInstance;
+        if (msp == null) {
+            synchronized (MySharedPreferences.class) {
+                msp = plainInstance;
+                if (msp == null) {
+                    msp = new MySharedPreferences(applicationContext(context), false);
+                    plainInstance = msp;
+                }
+            }
+        }
+        return msp;
+    }
+
+    /**
+     * drop the process stores after the pending writes are flushed. the next getInstance creates a new one
+     */
+    @VisibleForTesting
+    static void resetInstance() {
+        synchronized (MySharedPreferences.class) {
+            if (encryptedInstance != null)
+                encryptedInstance.flush();
+            if (plainInstance != null)
+                plainInstance.flush();
+            encryptedInstance = null;
+            plainInstance = null;
+        }
+    }
+
+    private static Context applicationContext(Context context) {
+        Context appContext = context.getApplicationContext();
+        return appContext != null ? appContext : context;
+    }
+
+    /**
+     * runs on the background thread
+     */
+    private static SharedPreferences createPlain(Context appContext) {
+        return appContext.getSharedPreferences("Permissions-Plain-SP", Context.MODE_PRIVATE);
+    }
+
+    /**
+     * runs on the background thread
+     */
+    @Nullable
+    private static SharedPreferences create(Context appContext) {
         try {
 
             KeyGenParameterSpec spec = new KeyGenParameterSpec.Builder(
@@ -30,7 +174,7 @@ class MySharedPreferences {
             MasterKey masterKey = new MasterKey.Builder(appContext)
                     .setKeyGenParameterSpec(spec)
                     .build();
-            sharedPreferences = EncryptedSharedPreferences.create(
+            return EncryptedSharedPreferences.create(
                     appContext,
                     "Permissions-SP",
                     masterKey, // masterKey created above
@@ -41,40 +185,236 @@ class MySharedPreferences {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        return null;
+    }
+
+    /**
+     * @return true if the store finished loading and a read will not block
+     */
+    boolean isReady() {
+        return sharedPreferences.isDone();
+    }
+
+    /**
+     * wait for the store. only reads and sync writes should get here
+     *
+     * @return the store or null if it failed to load
+     */
+    @Nullable
+    private SharedPreferences await() {
+        return await(sharedPreferences, null);
+    }
+
+    private static <T> T await(Future<T> future, T onError) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Log.e(TAG, "store operation failed", e.getCause());
+            return onError;
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
     }
 
 
     public void putString(String key, String value) {
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putString(key, value);
-        editor.apply();
+        putPending(Collections.singletonMap(key, value));
     }
 
+    /**
+     * durable write, all the pending writes are committed together with this one
+     *
+     * @return true if the value was written to the disk
+     */
     public boolean putStringSync(String key, String value) {
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putString(key, value);
-        return editor.commit();
+        synchronized (pendingLock) {
+            pending.put(key, value);
+        }
+        return flush();
     }
 
     public String getString(String key, String defValue) {
-        return sharedPreferences.getString(key, defValue);
+        Object value = getPending(key);
+        if (value == REMOVED)
+            return defValue;
+        if (value instanceof String)
+            return (String) value;
+        SharedPreferences sp = await();
+        return sp == null ? defValue : sp.getString(key, defValue);
     }
 
 
     public void putBoolean(String key, boolean value) {
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putBoolean(key, value);
-        editor.apply();
+        putPending(Collections.singletonMap(key, value));
     }
 
+    /**
+     * durable write, all the pending writes are committed together with this one
+     *
+     * @return true if the value was written to the disk
+     */
     public boolean putBooleanSync(String key, boolean value) {
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putBoolean(key, value);
-        return editor.commit();
+        synchronized (pendingLock) {
+            pending.put(key, value);
+        }
+        return flush();
+    }
+
+    /**
+     * queue boolean writes. see {@link #COALESCE_WINDOW_MS}
+     *
+     * @param values - key -> value to write
+     */
+    public void putBooleans(Map<String, Boolean> values) {
+        putPending(values);
     }
 
     public boolean getBoolean(String key, boolean defValue) {
-        return sharedPreferences.getBoolean(key, defValue);
+        Object value = getPending(key);
+        if (value == REMOVED)
+            return defValue;
+        if (value instanceof Boolean)
+            return (Boolean) value;
+        SharedPreferences sp = await();
+        return sp == null ? defValue : sp.getBoolean(key, defValue);
+    }
+
+    /**
+     * queue removal of keys. see {@link #COALESCE_WINDOW_MS}
+     *
+     * @param keys - the keys to remove
+     */
+    public void remove(Collection<String> keys) {
+        Map<String, Object> removed = new HashMap<>();
+        for (String key : keys)
+            removed.put(key, REMOVED);
+        putPending(removed);
+    }
+
+    /**
+     * write all the pending writes now and wait until they are on the disk
+     *
+     * @return true if the commit succeeded
+     */
+    public boolean flush() {
+        return await(executor.submit(() -> writePending(true)), false);
+    }
+
+    /**
+     * queue writes. writes that arrive within {@link #COALESCE_WINDOW_MS} are merged and
+     * written with one editor
+     */
+    private void putPending(Map<String, ?> values) {
+        synchronized (pendingLock) {
+            pending.putAll(values);
+            if (flushScheduled)
+                return;
+            flushScheduled = true;
+        }
+        executor.schedule(() -> writePending(false), COALESCE_WINDOW_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the value waiting to be written, REMOVED or null if nothing is waiting for the key
+     */
+    @Nullable
+    private Object getPending(String key) {
+        synchronized (pendingLock) {
+            Object value = pending.get(key);
+            if (value == null && writing != null)
+                value = writing.get(key);
+            return value;
+        }
+    }
+
+    /**
+     * runs on the background thread
+     *
+     * @param sync - commit and wait for the disk instead of apply
+     */
+    private boolean writePending(boolean sync) {
+        Map<String, Object> batch;
+        synchronized (pendingLock) {
+            batch = pending;
+            pending = new HashMap<>();
+            writing = batch;
+            flushScheduled = false;
+        }
+        try {
+            SharedPreferences sp = await();
+            if (sp == null)
+                return false;
+            if (batch.isEmpty() && !sync)
+                return true;
+            SharedPreferences.Editor editor = sp.edit();
+            for (Map.Entry<String, Object> entry : batch.entrySet()) {
+                Object value = entry.getValue();
+                if (value == REMOVED)
+                    editor.remove(entry.getKey());
+                else if (value instanceof Boolean)
+                    editor.putBoolean(entry.getKey(), (Boolean) value);
+                else
+                    editor.putString(entry.getKey(), (String) value);
+            }
+            // an empty commit still waits for the earlier applies to reach the disk
+            if (sync)
+                return editor.commit();
+            editor.apply();
+            return true;
+        } finally {
+            synchronized (pendingLock) {
+                writing = null;
+            }
+        }
+    }
+
+    /**
+     * read all the boolean entries in one pass, including the writes that are not on the disk yet.
+     * safe to call from any thread
+     *
+     * @return key -> value of all the boolean entries
+     */
+    public Map<String, Boolean> getAllBooleans() {
+        Map<String, Boolean> booleans = new HashMap<>();
+        SharedPreferences sp = await();
+        if (sp == null)
+            return booleans;
+        for (Map.Entry<String, ?> entry : sp.getAll().entrySet()) {
+            if (entry.getValue() instanceof Boolean)
+                booleans.put(entry.getKey(), (Boolean) entry.getValue());
+        }
+        synchronized (pendingLock) {
+            if (writing != null)
+                overlayBooleans(booleans, writing);
+            overlayBooleans(booleans, pending);
+        }
+        return booleans;
+    }
+
+    private static void overlayBooleans(Map<String, Boolean> booleans, Map<String, Object> writes) {
+        for (Map.Entry<String, Object> entry : writes.entrySet()) {
+            if (entry.getValue() == REMOVED)
+                booleans.remove(entry.getKey());
+            else if (entry.getValue() instanceof Boolean)
+                booleans.put(entry.getKey(), (Boolean) entry.getValue());
+        }
+    }
+
+    /**
+     * run a task on the store thread, after the store is loaded and after the writes queued before it
+     *
+     * @param task - the task to run
+     */
+    void execute(Runnable task) {
+        executor.execute(task);
     }
 
 }
@@ -0,0 +1,242 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * the permission decisions of GiveMe without Android: the state of each permission, what to do with it and
+ * which callbacks the results call. the platform work goes through the PermissionHost
+ */
+final class PermissionEngine {
+    /**
+     * PackageManager.PERMISSION_GRANTED
+     */
+    static final int PERMISSION_GRANTED = 0;
+    private static final String[] EMPTY = new String[0];
+
+    enum Action {
+        /**
+         * all the permissions are granted, nothing to ask
+         */
+        NONE,
+        /**
+         * show the system dialog for the denied permissions
+         */
+        REQUEST,
+        /**
+         * the system dialog can't be shown, only the app setting can grant the permissions
+         */
+        SETTINGS
+    }
+
+    private final PermissionHost host;
+
+    PermissionEngine(@NonNull PermissionHost host) {
+        this.host = host;
+    }
+
+    /**
+     * @param permissions - the permissions
+     * @return the state of the permissions with one system check per permission
+     */
+    @NonNull
+    PermissionSnapshot snapshot(@NonNull String[] permissions) {
+        PermissionSnapshot.State[] states = new PermissionSnapshot.State[permissions.length];
+        int unrecorded = 0;
+        for (int i = 0; i < permissions.length; i++) {
+            String permission = permissions[i];
+            if (host.isGranted(permission)) {
+                states[i] = PermissionSnapshot.State.GRANTED;
+            } else if (host.shouldShowRationale(permission)) {
+                states[i] = PermissionSnapshot.State.SHOULD_SHOW_RATIONALE;
+                // a denied permission without a record is asked with the system dialog, see canRequestDenied
+                if (!host.isAskedBefore(permission))
+                    unrecorded++;
+            } else if (host.isAskedBefore(permission)) {
+                states[i] = PermissionSnapshot.State.NEVER_ASK_AGAIN;
+            } else {
+                states[i] = PermissionSnapshot.State.NEVER_ASKED;
+            }
+        }
+        return new PermissionSnapshot(permissions.clone(), states, unrecorded);
+    }
+
+    /**
+     * state of permissions right after the user answered. a denied permission without rationale is "don't ask again"
+     *
+     * @param permissions  - the permissions that asked
+     * @param grantResults - the results from onRequestPermissionsResult or null to check the permissions now
+     * @return the snapshot of the results
+     */
+    @NonNull
+    PermissionSnapshot resultSnapshot(@NonNull String[] permissions, @Nullable int[] grantResults) {
+        PermissionSnapshot.State[] states = new PermissionSnapshot.State[permissions.length];
+        for (int i = 0; i < permissions.length; i++) {
+            String permission = permissions[i];
+            boolean granted = grantResults != null ? grantResults[i] == PERMISSION_GRANTED : host.isGranted(permission);
+            if (granted)
+                states[i] = PermissionSnapshot.State.GRANTED;
+            else if (host.shouldShowRationale(permission))
+                states[i] = PermissionSnapshot.State.SHOULD_SHOW_RATIONALE; // user did NOT check "never ask again"
+            else
+                states[i] = PermissionSnapshot.State.NEVER_ASK_AGAIN; // user also CHECKED "never ask again"
+        }
+        return new PermissionSnapshot(permissions.clone(), states);
+    }
+
+    /**
+     * @param permissions - the permissions
+     * @return the permissions that are not granted yet
+     */
+    @NonNull
+    PermissionSet notGranted(@NonNull String[] permissions) {
+        String[] notGranted = new String[permissions.length];
+        int count = 0;
+        for (String permission : permissions) {
+            if (!host.isGranted(permission))
+                notGranted[count++] = permission;
+        }
+        return count == 0 ? PermissionSet.empty() : PermissionSet.of(count == notGranted.length ? notGranted : Arrays.copyOf(notGranted, count));
+    }
+
+    /**
+     * remove duplicates and add the permissions the system wants in the same request (see PermissionGroups),
+     * if they are declared in the manifest
+     *
+     * @param permissions - the permissions of the request
+     * @return the permissions to ask, the same array if nothing changed
+     */
+    @NonNull
+    String[] normalize(@NonNull String[] permissions) {
+        ArrayList<String> normalized = null;
+        for (int i = 0; i < permissions.length; i++) {
+            String permission = permissions[i];
+            boolean duplicate = indexOf(permissions, permission, i) >= 0;
+            String companion = PermissionGroups.companionOf(permission);
+            boolean addCompanion = companion != null && indexOf(permissions, companion, permissions.length) < 0
+                    && host.isDeclared(companion);
+            if (normalized == null && (duplicate || addCompanion)) {
+                normalized = new ArrayList<>(permissions.length + 1);
+                for (int j = 0; j < i; j++)
+                    normalized.add(permissions[j]);
+            }
+            if (normalized == null)
+                continue;
+            if (!duplicate)
+                normalized.add(permission);
+            if (addCompanion && !normalized.contains(companion))
+                normalized.add(companion);
+        }
+        return normalized == null ? permissions : normalized.toArray(EMPTY);
+    }
+
+    /**
+     * @param permissions - the permissions
+     * @return the permissions that are not declared in the manifest, the system rejects them without asking
+     */
+    @NonNull
+    String[] undeclared(@NonNull String[] permissions) {
+        return filter(permissions, false);
+    }
+
+    /**
+     * @param permissions - the permissions
+     * @return the permissions that are declared in the manifest, the same array if all declared
+     */
+    @NonNull
+    String[] declared(@NonNull String[] permissions) {
+        return filter(permissions, true);
+    }
+
+    private String[] filter(String[] permissions, boolean declared) {
+        int count = 0;
+        for (String permission : permissions) {
+            if (host.isDeclared(permission) == declared)
+                count++;
+        }
+        if (count == permissions.length)
+            return permissions;
+        if (count == 0)
+            return EMPTY;
+        String[] result = new String[count];
+        for (int i = 0, j = 0; j < count; i++) {
+            if (host.isDeclared(permissions[i]) == declared)
+                result[j++] = permissions[i];
+        }
+        return result;
+    }
+
+    /**
+     * @return index of the permission in permissions[0, end) or -1
+     */
+    private static int indexOf(String[] permissions, String permission, int end) {
+        for (int i = 0; i < end; i++) {
+            if (permissions[i].equals(permission))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @param snapshot - the state of the permissions
+     * @return what requestPermissionsWithForce and the "agree" button of requestPermissionsWithDialog do
+     */
+    @NonNull
+    static Action decide(@NonNull PermissionSnapshot snapshot) {
+        if (snapshot.isAllGranted())
+            return Action.NONE;
+        //asked in the past but "don't ask me again" set off or never asked before
+        return snapshot.canRequestDenied() ? Action.REQUEST : Action.SETTINGS;
+    }
+
+    /**
+     * @param permissions - the permissions to ask
+     * @return the ordered system requests for the permissions, see PermissionStages
+     */
+    @NonNull
+    PermissionSet[] stages(@NonNull PermissionSet permissions) {
+        return PermissionStages.plan(permissions, host);
+    }
+
+    /**
+     * mark the permissions as asked and show the system dialog
+     *
+     * @param permissions - the permissions to ask
+     * @param requestCode - the request code
+     */
+    void request(@NonNull PermissionSet permissions, int requestCode) {
+        String[] array = permissions.toArray();
+        host.markAsAsked(array);
+        host.requestPermissions(array, requestCode);
+    }
+
+    /**
+     * @param requestCode - the request code
+     */
+    void openSettings(int requestCode) {
+        host.startSettings(requestCode);
+    }
+
+    /**
+     * call the GrantListener once with the results of the permissions it asked for
+     *
+     * @param listener  - the GrantListener of the request
+     * @param requested - the permissions the request asked for
+     * @param results   - the snapshot of the results, may have more permissions than requested. a requested permission
+     *                  that is missing (not asked, or the dialog was interrupted) counts as not granted
+     */
+    static void deliver(@NonNull GrantListener listener, @NonNull PermissionSet requested, @NonNull PermissionSnapshot results) {
+        PermissionSet neverAskAgain = results.getPermissionSet(PermissionSnapshot.State.NEVER_ASK_AGAIN).intersect(requested);
+        PermissionSet granted = results.getPermissionSet(PermissionSnapshot.State.GRANTED).intersect(requested);
+        PermissionSet notGranted = requested.difference(granted).difference(neverAskAgain);
+        Metrics.outcome(granted.size(), notGranted.size(), neverAskAgain.size());
+        if (!neverAskAgain.isEmpty())
+            listener.onNeverAskAgain(neverAskAgain);
+        if (!notGranted.isEmpty())
+            listener.onNotGranted(notGranted);
+        listener.onGranted(granted.equals(requested));
+    }
+}
@@ -0,0 +1,121 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+
+/**
+ * the decisions of the GiveMe flows, without Android: what requestPermissions, requestPermissionsWithForce and
+ * requestPermissionsWithDialog do for a state of the permissions. GiveMe runs them with the activity and the dialogs,
+ * the scenario simulator of the benchmark module runs the same decisions with a simulated user
+ */
+final class PermissionFlow {
+
+    /**
+     * what a flow can do. each step gets the GrantListener of the request and calls it when the step is done
+     */
+    interface Steps {
+        /**
+         * show the system dialog
+         *
+         * @param permissions - the permissions to ask
+         * @param listener    - gets the results
+         */
+        void request(@NonNull PermissionSet permissions, GrantListener listener);
+
+        /**
+         * show the dialog that sends the user to the app setting. the positive button calls {@link #openSettings}
+         *
+         * @param permissions - the permissions of the request
+         * @param listener    - gets the results if the user goes to the app setting
+         */
+        void showSettingDialog(@NonNull String[] permissions, GrantListener listener);
+
+        /**
+         * show the rationale dialog. the positive button calls {@link #rationaleAccepted}
+         *
+         * @param snapshot    - the state of the permissions of the request
+         * @param permissions - the permissions of the request
+         * @param listener    - gets the results if the user agrees
+         */
+        void showRationaleDialog(@NonNull PermissionSnapshot snapshot, @NonNull String[] permissions, GrantListener listener);
+
+        /**
+         * open the app setting, the permissions are checked when the user is back
+         *
+         * @param permissions - the permissions to check
+         * @param listener    - gets the results
+         */
+        void openSettings(@NonNull String[] permissions, GrantListener listener);
+    }
+
+    private PermissionFlow() {
+    }
+
+    /**
+     * requestPermissions
+     *
+     * @param notGranted - the permissions of the request that are not granted
+     * @param listener   - the GrantListener of the request
+     * @param steps      - the steps
+     */
+    static void request(@NonNull PermissionSet notGranted, GrantListener listener, @NonNull Steps steps) {
+        if (notGranted.isEmpty())
+            listener.onGranted(true);
+        else
+            steps.request(notGranted, listener);
+    }
+
+    /**
+     * requestPermissionsWithForce
+     *
+     * @param snapshot    - the state of the permissions of the request
+     * @param permissions - the permissions of the request
+     * @param listener    - the GrantListener of the request
+     * @param steps       - the steps
+     */
+    static void force(@NonNull PermissionSnapshot snapshot, @NonNull String[] permissions, GrantListener listener,
+                      @NonNull Steps steps) {
+        switch (PermissionEngine.decide(snapshot)) {
+            case NONE:
+                listener.onGranted(true);
+                break;
+            case REQUEST:
+                steps.request(snapshot.getDeniedPermissionSet(), listener);
+                break;
+            case SETTINGS:
+                steps.showSettingDialog(permissions, listener);
+                break;
+        }
+    }
+
+    /**
+     * requestPermissionsWithDialog
+     *
+     * @param snapshot    - the state of the permissions of the request
+     * @param permissions - the permissions of the request
+     * @param listener    - the GrantListener of the request
+     * @param steps       - the steps
+     */
+    static void dialog(@NonNull PermissionSnapshot snapshot, @NonNull String[] permissions, GrantListener listener,
+                       @NonNull Steps steps) {
+        if (snapshot.isAllGranted())
+            listener.onGranted(true);
+        else
+            steps.showRationaleDialog(snapshot, permissions, listener);
+    }
+
+    /**
+     * the positive button of the rationale dialog: the system dialog, or the app setting if it can't be shown
+     *
+     * @param snapshot    - the state of the permissions when the dialog was shown
+     * @param permissions - the permissions of the request
+     * @param listener    - the GrantListener of the request
+     * @param steps       - the steps
+     */
+    static void rationaleAccepted(@NonNull PermissionSnapshot snapshot, @NonNull String[] permissions, GrantListener listener,
+                                  @NonNull Steps steps) {
+        if (PermissionEngine.decide(snapshot) == PermissionEngine.Action.REQUEST)
+            steps.request(snapshot.getDeniedPermissionSet(), listener);
+        else // don't ask me again
+            steps.openSettings(permissions, listener);
+    }
+}
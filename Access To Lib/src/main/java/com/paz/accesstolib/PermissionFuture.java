@@ -0,0 +1,256 @@
+package com.paz.accesstolib;
+
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * the pending result of {@link GiveMe#requestPermissionsAsync(String[])}.
+ * the result arrives on the callback executor of the GiveMe, the main thread by default
+ */
+public final class PermissionFuture {
+
+    public interface Callback {
+        /**
+         * @param result - the result of the request
+         */
+        void onResult(@NonNull PermissionResult result);
+    }
+
+    public interface Continuation {
+        /**
+         * @param result - the result of the previous request
+         * @return the next request
+         */
+        @NonNull
+        PermissionFuture then(@NonNull PermissionResult result);
+    }
+
+    private final Object lock = new Object();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private PermissionResult result;
+    private boolean cancelled;
+    private ArrayList<Callback> callbacks;
+    @Nullable
+    private Runnable onCancel;
+    /**
+     * run when this future is cancelled, for the futures that depend on it
+     */
+    private ArrayList<Runnable> cancelListeners;
+
+    PermissionFuture() {
+    }
+
+    /**
+     * @param result - the result
+     * @return a future that is already done
+     */
+    static PermissionFuture completed(@NonNull PermissionResult result) {
+        PermissionFuture future = new PermissionFuture();
+        future.complete(result);
+        return future;
+    }
+
+    /**
+     * @param onCancel - runs once if the future is cancelled before it's done
+     */
+    void setOnCancel(@Nullable Runnable onCancel) {
+        boolean runNow;
+        synchronized (lock) {
+            this.onCancel = onCancel;
+            runNow = cancelled;
+        }
+        if (runNow && onCancel != null)
+            onCancel.run();
+    }
+
+    /**
+     * @param listener - runs if the future is cancelled, now if it already is. dropped when the future completes
+     */
+    void whenCancelled(@NonNull Runnable listener) {
+        synchronized (lock) {
+            if (result != null)
+                return;
+            if (!cancelled) {
+                if (cancelListeners == null)
+                    cancelListeners = new ArrayList<>(1);
+                cancelListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    /**
+     * @param result - the result
+     * @return false if the future was already done or cancelled
+     */
+    boolean complete(@NonNull PermissionResult result) {
+        ArrayList<Callback> toRun;
+        synchronized (lock) {
+            if (this.result != null || cancelled)
+                return false;
+            this.result = result;
+            toRun = callbacks;
+            callbacks = null;
+            onCancel = null;
+            cancelListeners = null;
+        }
+        done.countDown();
+        if (toRun != null) {
+            for (Callback callback : toRun)
+                callback.onResult(result);
+        }
+        return true;
+    }
+
+    /**
+     * run a callback with the result. runs now if the result is here, otherwise on the thread that delivers it
+     *
+     * @param callback - the callback
+     * @return this future, for chaining
+     */
+    @NonNull
+    public PermissionFuture then(@NonNull Callback callback) {
+        PermissionResult now;
+        synchronized (lock) {
+            if (cancelled)
+                return this;
+            now = result;
+            if (now == null) {
+                if (callbacks == null)
+                    callbacks = new ArrayList<>(2);
+                callbacks.add(callback);
+                return this;
+            }
+        }
+        callback.onResult(now);
+        return this;
+    }
+
+    /**
+     * start another request when this one is done, for example ask for background location after location.
+     * cancelling the returned future cancels the request that is running, and the returned future is cancelled
+     * when this one or the next request is cancelled
+     *
+     * @param continuation - makes the next request from the result of this one
+     * @return future of the next request
+     */
+    @NonNull
+    public PermissionFuture thenRequest(@NonNull Continuation continuation) {
+        PermissionFuture next = new PermissionFuture();
+        next.setOnCancel(this::cancel);
+        whenCancelled(next::cancel);
+        then(result -> {
+            if (next.isCancelled())
+                return;
+            PermissionFuture inner = continuation.then(result);
+            next.setOnCancel(inner::cancel);
+            inner.whenCancelled(next::cancel);
+            inner.then(next::complete);
+        });
+        return next;
+    }
+
+    /**
+     * cancel the request. if the system dialog is not showing yet it won't be shown for this request.
+     * the callbacks are not called
+     *
+     * @return false if the future was already done or cancelled
+     */
+    public boolean cancel() {
+        Runnable toRun;
+        ArrayList<Runnable> listeners;
+        synchronized (lock) {
+            if (result != null || cancelled)
+                return false;
+            cancelled = true;
+            callbacks = null;
+            toRun = onCancel;
+            onCancel = null;
+            listeners = cancelListeners;
+            cancelListeners = null;
+        }
+        done.countDown();
+        if (toRun != null)
+            toRun.run();
+        if (listeners != null) {
+            for (Runnable listener : listeners)
+                listener.run();
+        }
+        return true;
+    }
+
+    public boolean isCancelled() {
+        synchronized (lock) {
+            return cancelled;
+        }
+    }
+
+    public boolean isDone() {
+        synchronized (lock) {
+            return result != null || cancelled;
+        }
+    }
+
+    /**
+     * @return the result or null if not done yet or cancelled
+     */
+    @Nullable
+    public PermissionResult getNow() {
+        synchronized (lock) {
+            return result;
+        }
+    }
+
+    /**
+     * wait for the result. for background threads only, the result arrives on the main thread
+     *
+     * @return the result
+     * @throws CancellationException if the future was cancelled
+     * @throws IllegalStateException if called on the main thread
+     */
+    @NonNull
+    public PermissionResult get() throws InterruptedException {
+        checkNotMainThread();
+        done.await();
+        return resultOrThrow();
+    }
+
+    /**
+     * wait for the result. for background threads only, the result arrives on the main thread
+     *
+     * @return the result
+     * @throws CancellationException if the future was cancelled
+     * @throws TimeoutException      if the result didn't arrive in time
+     * @throws IllegalStateException if called on the main thread
+     */
+    @NonNull
+    public PermissionResult get(long timeout, @NonNull TimeUnit unit) throws InterruptedException, TimeoutException {
+        checkNotMainThread();
+        if (!done.await(timeout, unit))
+            throw new TimeoutException();
+        return resultOrThrow();
+    }
+
+    private PermissionResult resultOrThrow() {
+        synchronized (lock) {
+            if (cancelled)
+                throw new CancellationException();
+            return result;
+        }
+    }
+
+    private static void checkNotMainThread() {
+        Looper mainLooper = Looper.getMainLooper();
+        if (mainLooper != null && mainLooper.isCurrentThread())
+            throw new IllegalStateException("get() would block the main thread that delivers the result");
+    }
+}
@@ -0,0 +1,72 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * the groups of the runtime permissions. since Android 10 PackageManager doesn't tell the group of a permission,
+ * so the table is kept here
+ */
+public final class PermissionGroups {
+    public static final String CALENDAR = "android.permission-group.CALENDAR";
+    public static final String CALL_LOG = "android.permission-group.CALL_LOG";
+    public static final String CAMERA = "android.permission-group.CAMERA";
+    public static final String CONTACTS = "android.permission-group.CONTACTS";
+    public static final String LOCATION = "android.permission-group.LOCATION";
+    public static final String MICROPHONE = "android.permission-group.MICROPHONE";
+    public static final String PHONE = "android.permission-group.PHONE";
+    public static final String SENSORS = "android.permission-group.SENSORS";
+    public static final String SMS = "android.permission-group.SMS";
+    public static final String STORAGE = "android.permission-group.STORAGE";
+    public static final String ACTIVITY_RECOGNITION = "android.permission-group.ACTIVITY_RECOGNITION";
+
+    static final String ACCESS_FINE_LOCATION = "android.permission.ACCESS_FINE_LOCATION";
+    static final String ACCESS_COARSE_LOCATION = "android.permission.ACCESS_COARSE_LOCATION";
+
+    private static final Map<String, String> GROUPS = new HashMap<>();
+
+    static {
+        group(CALENDAR, "READ_CALENDAR", "WRITE_CALENDAR");
+        group(CALL_LOG, "READ_CALL_LOG", "WRITE_CALL_LOG", "PROCESS_OUTGOING_CALLS");
+        group(CAMERA, "CAMERA");
+        group(CONTACTS, "READ_CONTACTS", "WRITE_CONTACTS", "GET_ACCOUNTS");
+        group(LOCATION, "ACCESS_FINE_LOCATION", "ACCESS_COARSE_LOCATION", "ACCESS_BACKGROUND_LOCATION");
+        group(MICROPHONE, "RECORD_AUDIO");
+        group(PHONE, "READ_PHONE_STATE", "READ_PHONE_NUMBERS", "CALL_PHONE", "ANSWER_PHONE_CALLS",
+                "ADD_VOICEMAIL", "USE_SIP", "ACCEPT_HANDOVER");
+        group(SENSORS, "BODY_SENSORS");
+        group(SMS, "SEND_SMS", "RECEIVE_SMS", "READ_SMS", "RECEIVE_WAP_PUSH", "RECEIVE_MMS");
+        group(STORAGE, "READ_EXTERNAL_STORAGE", "WRITE_EXTERNAL_STORAGE", "ACCESS_MEDIA_LOCATION");
+        group(ACTIVITY_RECOGNITION, "ACTIVITY_RECOGNITION");
+    }
+
+    private PermissionGroups() {
+    }
+
+    private static void group(String group, String... permissions) {
+        for (String permission : permissions)
+            GROUPS.put("android.permission." + permission, group);
+    }
+
+    /**
+     * @param permission - the permission, for example Manifest.permission.ACCESS_FINE_LOCATION
+     * @return the group of the permission, for example PermissionGroups.LOCATION, or null if it's not a runtime permission
+     */
+    @Nullable
+    public static String groupOf(@NonNull String permission) {
+        return GROUPS.get(permission);
+    }
+
+    /**
+     * @param permission - the permission
+     * @return a permission the system wants in the same request or null. fine location must be asked with
+     * coarse location, so the user can choose the approximate location
+     */
+    @Nullable
+    static String companionOf(@NonNull String permission) {
+        return ACCESS_FINE_LOCATION.equals(permission) ? ACCESS_COARSE_LOCATION : null;
+    }
+}
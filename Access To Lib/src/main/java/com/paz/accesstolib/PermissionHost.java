@@ -0,0 +1,54 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+
+/**
+ * what PermissionEngine needs from the platform. GiveMe implements it with the Activity and the PermissionStore,
+ * tests and benchmarks implement it in plain Java
+ */
+interface PermissionHost {
+
+    /**
+     * @param permission - the permission
+     * @return true if the permission is granted (checkSelfPermission)
+     */
+    boolean isGranted(@NonNull String permission);
+
+    /**
+     * @param permission - the permission
+     * @return shouldShowRequestPermissionRationale of the permission
+     */
+    boolean shouldShowRationale(@NonNull String permission);
+
+    /**
+     * @param permission - the permission
+     * @return true if the permission is declared in the app manifest
+     */
+    boolean isDeclared(@NonNull String permission);
+
+    /**
+     * @param permission - the permission
+     * @return true if the store has the permission as asked before
+     */
+    boolean isAskedBefore(@NonNull String permission);
+
+    /**
+     * @param permissions - permissions to save as asked in the store
+     */
+    void markAsAsked(@NonNull String[] permissions);
+
+    /**
+     * show the system permissions dialog, the results go to onRequestPermissionsResult
+     *
+     * @param permissions - the permissions to ask
+     * @param requestCode - the request code
+     */
+    void requestPermissions(@NonNull String[] permissions, int requestCode);
+
+    /**
+     * open the app setting, the user is back on onActivityResult
+     *
+     * @param requestCode - the request code
+     */
+    void startSettings(int requestCode);
+}
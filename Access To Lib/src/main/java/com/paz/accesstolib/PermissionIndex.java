@@ -0,0 +1,66 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * process-wide intern table of permission names. each name gets a small index, its bit in a PermissionSet.
+ * indexes are never reused and are valid only in the current process. when the table is full the next names
+ * don't get an index and PermissionSet compares them by name
+ */
+final class PermissionIndex {
+    /**
+     * a PermissionSet is one long
+     */
+    static final int CAPACITY = 64;
+
+    private static final ConcurrentHashMap<String, Integer> INDEXES = new ConcurrentHashMap<>();
+    private static final AtomicReferenceArray<String> NAMES = new AtomicReferenceArray<>(CAPACITY);
+
+    private PermissionIndex() {
+    }
+
+    /**
+     * @param permission - the permission name
+     * @return the index of the permission, a new index if it's the first time, -1 if the table is full
+     */
+    static int indexOf(@NonNull String permission) {
+        Integer index = INDEXES.get(permission);
+        if (index != null)
+            return index;
+        return intern(permission);
+    }
+
+    /**
+     * @param permission - the permission name
+     * @return the index of the permission or -1 if it was never interned
+     */
+    static int find(@NonNull String permission) {
+        Integer index = INDEXES.get(permission);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * @param index - an index returned by {@link #indexOf(String)}
+     * @return the permission name
+     */
+    @NonNull
+    static String nameOf(int index) {
+        return NAMES.get(index);
+    }
+
+    private static synchronized int intern(String permission) {
+        Integer index = INDEXES.get(permission);
+        if (index != null)
+            return index;
+        int next = INDEXES.size();
+        if (next >= CAPACITY)
+            return -1;
+        // the name is published before the index so nameOf never sees a missing name
+        NAMES.set(next, permission);
+        INDEXES.put(permission, next);
+        return next;
+    }
+}
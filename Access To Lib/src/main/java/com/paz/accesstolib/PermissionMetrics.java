@@ -0,0 +1,53 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+
+/**
+ * receives the timing and the outcome of the permission flows. register with {@link GiveMe#setMetrics(PermissionMetrics)}.
+ * called from the main thread and from the store thread, so implementations must be thread safe.
+ * {@link PermissionMetricsRecorder} is a ready lock-free implementation
+ */
+public interface PermissionMetrics {
+
+    enum Stage {
+        /**
+         * loading the permissions store (keystore, master key and the prefs file)
+         */
+        STORE_INIT,
+        /**
+         * from the request method call to the first dialog the user sees (GiveMe dialog or system dialog)
+         */
+        TIME_TO_DIALOG,
+        /**
+         * the user is in the dialog of requestPermissionsWithDialog
+         */
+        RATIONALE_DIALOG,
+        /**
+         * the user is in the "Permission denied" dialog of askPermissionsFromSetting
+         */
+        SETTING_DIALOG,
+        /**
+         * the user is in the system permissions dialog
+         */
+        SYSTEM_DIALOG,
+        /**
+         * the user is in the app setting
+         */
+        SETTING_SCREEN
+    }
+
+    /**
+     * @param stage - the stage
+     * @param nanos - the time of the stage in nanoseconds
+     */
+    void onLatency(@NonNull Stage stage, long nanos);
+
+    /**
+     * the outcome of one request
+     *
+     * @param granted       - number of granted permissions
+     * @param notGranted    - number of permissions not granted that can be asked again
+     * @param neverAskAgain - number of permissions not granted and marked as "don't ask again"
+     */
+    void onOutcome(int granted, int notGranted, int neverAskAgain);
+}
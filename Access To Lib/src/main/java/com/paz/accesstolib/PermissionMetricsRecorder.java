@@ -0,0 +1,71 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PermissionMetrics that keeps a LatencyHistogram per stage and outcome counters, all lock-free
+ */
+public final class PermissionMetricsRecorder implements PermissionMetrics {
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong granted = new AtomicLong();
+    private final AtomicLong notGranted = new AtomicLong();
+    private final AtomicLong neverAskAgain = new AtomicLong();
+
+    public PermissionMetricsRecorder() {
+        for (int i = 0; i < histograms.length; i++)
+            histograms[i] = new LatencyHistogram();
+    }
+
+    @Override
+    public void onLatency(@NonNull Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void onOutcome(int granted, int notGranted, int neverAskAgain) {
+        requests.incrementAndGet();
+        this.granted.addAndGet(granted);
+        this.notGranted.addAndGet(notGranted);
+        this.neverAskAgain.addAndGet(neverAskAgain);
+    }
+
+    /**
+     * @param stage - the stage
+     * @return the histogram of the stage
+     */
+    @NonNull
+    public LatencyHistogram getHistogram(@NonNull Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    /**
+     * @return number of requests that got results
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return number of granted permissions in all the results
+     */
+    public long getGrantedCount() {
+        return granted.get();
+    }
+
+    /**
+     * @return number of not granted permissions (can be asked again) in all the results
+     */
+    public long getNotGrantedCount() {
+        return notGranted.get();
+    }
+
+    /**
+     * @return number of "don't ask again" permissions in all the results
+     */
+    public long getNeverAskAgainCount() {
+        return neverAskAgain.get();
+    }
+}
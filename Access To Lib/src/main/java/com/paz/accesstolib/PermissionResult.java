@@ -0,0 +1,126 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * immutable result of a permissions request, see {@link GiveMe#requestPermissionsAsync(String[])}
+ */
+public final class PermissionResult {
+    private final PermissionSet requested;
+    private final PermissionSet granted;
+    private final PermissionSet notGranted;
+    private final PermissionSet neverAskAgain;
+    private final PermissionSet undeclared;
+
+    PermissionResult(@NonNull PermissionSet requested, @NonNull PermissionSet granted, @NonNull PermissionSet notGranted,
+                     @NonNull PermissionSet neverAskAgain, @NonNull PermissionSet undeclared) {
+        this.requested = requested;
+        this.granted = granted;
+        this.notGranted = notGranted;
+        this.neverAskAgain = neverAskAgain;
+        this.undeclared = undeclared;
+    }
+
+    /**
+     * @param requested      - all the permissions of the request
+     * @param alreadyGranted - the permissions that were granted before the request
+     * @param undeclared     - the permissions that are not declared in the manifest and were not asked
+     * @param results        - the results of the system dialog
+     * @return the result of the request
+     */
+    static PermissionResult of(@NonNull PermissionSet requested, @NonNull PermissionSet alreadyGranted,
+                               @NonNull PermissionSet undeclared, @NonNull PermissionSnapshot results) {
+        PermissionSet asked = requested.difference(alreadyGranted).difference(undeclared);
+        PermissionSet granted = alreadyGranted.union(results.getPermissionSet(PermissionSnapshot.State.GRANTED).intersect(asked));
+        PermissionSet neverAskAgain = results.getPermissionSet(PermissionSnapshot.State.NEVER_ASK_AGAIN).intersect(asked);
+        // asked but missing from the results (the dialog was interrupted) counts as not granted
+        PermissionSet notGranted = asked.difference(granted).difference(neverAskAgain);
+        return new PermissionResult(requested, granted, notGranted, neverAskAgain, undeclared);
+    }
+
+    /**
+     * @param granted - all the permissions, granted
+     * @return result of a request with nothing to ask
+     */
+    static PermissionResult allGranted(@NonNull PermissionSet granted) {
+        return new PermissionResult(granted, granted, PermissionSet.empty(), PermissionSet.empty(), PermissionSet.empty());
+    }
+
+    /**
+     * @return true if all the requested permissions are granted
+     */
+    public boolean isAllGranted() {
+        return granted.containsAll(requested);
+    }
+
+    /**
+     * @param permission - the permission
+     * @return true if the permission is granted
+     */
+    public boolean isGranted(@NonNull String permission) {
+        return granted.contains(permission);
+    }
+
+    /**
+     * @param permission - the permission
+     * @return the state of the permission or null if it was not requested or not declared in the manifest
+     */
+    @Nullable
+    public PermissionSnapshot.State getState(@NonNull String permission) {
+        if (granted.contains(permission))
+            return PermissionSnapshot.State.GRANTED;
+        if (neverAskAgain.contains(permission))
+            return PermissionSnapshot.State.NEVER_ASK_AGAIN;
+        if (notGranted.contains(permission))
+            return PermissionSnapshot.State.SHOULD_SHOW_RATIONALE;
+        return null;
+    }
+
+    /**
+     * @return all the requested permissions
+     */
+    @NonNull
+    public PermissionSet getRequested() {
+        return requested;
+    }
+
+    /**
+     * @return the granted permissions
+     */
+    @NonNull
+    public PermissionSet getGranted() {
+        return granted;
+    }
+
+    /**
+     * @return the permissions that not granted and can be asked again
+     */
+    @NonNull
+    public PermissionSet getNotGranted() {
+        return notGranted;
+    }
+
+    /**
+     * @return the permissions that not granted and marked as "don't ask again"
+     */
+    @NonNull
+    public PermissionSet getNeverAskAgain() {
+        return neverAskAgain;
+    }
+
+    /**
+     * @return the permissions that are not declared in the manifest, they were not asked
+     */
+    @NonNull
+    public PermissionSet getUndeclared() {
+        return undeclared;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "PermissionResult{granted=" + granted + ", notGranted=" + notGranted + ", neverAskAgain=" + neverAskAgain
+                + ", undeclared=" + undeclared + '}';
+    }
+}
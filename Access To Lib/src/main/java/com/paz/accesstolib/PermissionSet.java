@@ -0,0 +1,233 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * immutable set of permissions that keeps the order they were given in.
+ * membership is a bitmask over interned permission indexes, so membership and set checks don't allocate.
+ * the first 64 different permissions of the process get an index, the next ones are compared by name
+ */
+public final class PermissionSet {
+    private static final String[] NO_NAMES = new String[0];
+    private static final PermissionSet EMPTY = new PermissionSet(NO_NAMES, 0L, 0);
+
+    /**
+     * the permissions, in the order they were given
+     */
+    private final String[] names;
+    /**
+     * the bits of the permissions that have an index
+     */
+    private final long bits;
+    /**
+     * number of permissions without an index
+     */
+    private final int unindexed;
+
+    private PermissionSet(String[] names, long bits, int unindexed) {
+        this.names = names;
+        this.bits = bits;
+        this.unindexed = unindexed;
+    }
+
+    /**
+     * @return the empty set
+     */
+    @NonNull
+    public static PermissionSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param permissions - the permissions
+     * @return set of the permissions, in the given order without duplicates
+     */
+    @NonNull
+    public static PermissionSet of(@NonNull String... permissions) {
+        return collect(permissions, permissions.length);
+    }
+
+    /**
+     * @param permissions - the permissions, may have duplicates
+     * @param length      - number of permissions to take from the start of the array
+     */
+    private static PermissionSet collect(String[] permissions, int length) {
+        if (length == 0)
+            return EMPTY;
+        String[] names = new String[length];
+        int size = 0;
+        long bits = 0L;
+        int unindexed = 0;
+        for (int i = 0; i < length; i++) {
+            String permission = permissions[i];
+            int index = PermissionIndex.indexOf(permission);
+            if (index >= 0) {
+                long bit = 1L << index;
+                if ((bits & bit) != 0)
+                    continue;
+                bits |= bit;
+            } else {
+                if (unindexed > 0 && indexOf(names, size, permission) >= 0)
+                    continue;
+                unindexed++;
+            }
+            names[size++] = permission;
+        }
+        return new PermissionSet(size == length ? names : Arrays.copyOf(names, size), bits, unindexed);
+    }
+
+    private static int indexOf(String[] names, int size, String permission) {
+        for (int i = 0; i < size; i++) {
+            if (names[i].equals(permission))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @param permission - the permission
+     * @return true if the permission is in the set
+     */
+    public boolean contains(@NonNull String permission) {
+        int index = PermissionIndex.find(permission);
+        if (index >= 0)
+            return (bits & (1L << index)) != 0;
+        // a permission that didn't get an index never gets one, the index table is full
+        return unindexed > 0 && indexOf(names, names.length, permission) >= 0;
+    }
+
+    /**
+     * @param other - another set
+     * @return true if all the permissions of the other set are in this set
+     */
+    public boolean containsAll(@NonNull PermissionSet other) {
+        if ((other.bits & ~bits) != 0)
+            return false;
+        if (other.unindexed == 0)
+            return true;
+        if (other.unindexed > unindexed)
+            return false;
+        for (String name : other.names) {
+            if (PermissionIndex.find(name) < 0 && indexOf(names, names.length, name) < 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param other - another set
+     * @return true if at least one permission is in both sets
+     */
+    public boolean intersects(@NonNull PermissionSet other) {
+        if ((bits & other.bits) != 0)
+            return true;
+        if (unindexed == 0 || other.unindexed == 0)
+            return false;
+        for (String name : other.names) {
+            if (PermissionIndex.find(name) < 0 && indexOf(names, names.length, name) >= 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param other - another set
+     * @return the permissions in this set and then the ones of the other set that are not in this set
+     */
+    @NonNull
+    public PermissionSet union(@NonNull PermissionSet other) {
+        if (containsAll(other))
+            return this;
+        if (names.length == 0)
+            return other;
+        String[] all = Arrays.copyOf(names, names.length + other.names.length);
+        System.arraycopy(other.names, 0, all, names.length, other.names.length);
+        return collect(all, all.length);
+    }
+
+    /**
+     * @param other - another set
+     * @return the permissions in this set and not in the other set
+     */
+    @NonNull
+    public PermissionSet difference(@NonNull PermissionSet other) {
+        return intersects(other) ? filter(other, false) : this;
+    }
+
+    /**
+     * @param other - another set
+     * @return the permissions in both sets
+     */
+    @NonNull
+    public PermissionSet intersect(@NonNull PermissionSet other) {
+        return other.containsAll(this) ? this : filter(other, true);
+    }
+
+    /**
+     * @param other - another set
+     * @param in    - true to keep the permissions in the other set, false to keep the ones not in it
+     */
+    private PermissionSet filter(PermissionSet other, boolean in) {
+        String[] kept = new String[names.length];
+        int size = 0;
+        for (String name : names) {
+            if (other.contains(name) == in)
+                kept[size++] = name;
+        }
+        if (size == names.length)
+            return this;
+        return collect(kept, size);
+    }
+
+    /**
+     * @return number of permissions in the set
+     */
+    public int size() {
+        return names.length;
+    }
+
+    public boolean isEmpty() {
+        return names.length == 0;
+    }
+
+    /**
+     * @return new array of the permissions, in the order of the set
+     */
+    @NonNull
+    public String[] toArray() {
+        return names.length == 0 ? NO_NAMES : names.clone();
+    }
+
+    /**
+     * equal to another set with the same permissions in any order
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof PermissionSet))
+            return false;
+        PermissionSet that = (PermissionSet) o;
+        return that.bits == bits && that.names.length == names.length && (unindexed == 0 || containsAll(that));
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = (int) (bits ^ (bits >>> 32));
+        if (unindexed > 0) {
+            for (String name : names) {
+                if (PermissionIndex.find(name) < 0)
+                    hash += name.hashCode();
+            }
+        }
+        return hash;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return Arrays.toString(names);
+    }
+}
@@ -0,0 +1,260 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * immutable status of a list of permissions, taken once with one system check per permission.
+ * use {@link GiveMe#getPermissionSnapshot(String[])} to get the status of many permissions at once
+ */
+public final class PermissionSnapshot {
+
+    public enum State {
+        /**
+         * the permission is granted
+         */
+        GRANTED,
+        /**
+         * not granted, the user denied it before and it can be asked again (shouldShowRequestPermissionRationale is true)
+         */
+        SHOULD_SHOW_RATIONALE,
+        /**
+         * not granted, never asked before
+         */
+        NEVER_ASKED,
+        /**
+         * not granted, the user selected "don't ask me again" or the system blocks the request.
+         * only the app setting can grant it
+         */
+        NEVER_ASK_AGAIN;
+
+        /**
+         * @return true if the permission is not granted
+         */
+        public boolean isDenied() {
+            return this != GRANTED;
+        }
+    }
+
+    private static final State[] STATES = State.values();
+    static final PermissionSnapshot EMPTY = new PermissionSnapshot(new String[0], new State[0]);
+
+    private final String[] permissions;
+    private final State[] states;
+    private final int[] counts = new int[STATES.length];
+    /**
+     * permissions in SHOULD_SHOW_RATIONALE that the PermissionStore has no record of asking,
+     * for example asked before the app used GiveMe
+     */
+    private final int unrecorded;
+    /**
+     * the permissions of each state as a set, built on first use
+     */
+    private final PermissionSet[] sets = new PermissionSet[STATES.length];
+    private PermissionSet denied;
+
+    /**
+     * @param permissions - the permissions, not copied
+     * @param states      - the state of each permission, not copied
+     */
+    PermissionSnapshot(@NonNull String[] permissions, @NonNull State[] states) {
+        this(permissions, states, 0);
+    }
+
+    /**
+     * @param permissions - the permissions, not copied
+     * @param states      - the state of each permission, not copied
+     * @param unrecorded  - number of SHOULD_SHOW_RATIONALE permissions the PermissionStore has no record of asking
+     */
+    PermissionSnapshot(@NonNull String[] permissions, @NonNull State[] states, int unrecorded) {
+        this.permissions = permissions;
+        this.states = states;
+        this.unrecorded = unrecorded;
+        for (State state : states)
+            counts[state.ordinal()]++;
+    }
+
+    /**
+     * @return number of permissions in the snapshot
+     */
+    public int size() {
+        return permissions.length;
+    }
+
+    /**
+     * @param index - 0 to size() - 1
+     * @return the permission at the index
+     */
+    @NonNull
+    public String getPermission(int index) {
+        return permissions[index];
+    }
+
+    /**
+     * @param index - 0 to size() - 1
+     * @return the state of the permission at the index
+     */
+    @NonNull
+    public State getState(int index) {
+        return states[index];
+    }
+
+    /**
+     * @param permission - the permission
+     * @return the state of the permission or null if it's not in the snapshot
+     */
+    @Nullable
+    public State getState(@NonNull String permission) {
+        for (int i = 0; i < permissions.length; i++) {
+            if (permissions[i].equals(permission))
+                return states[i];
+        }
+        return null;
+    }
+
+    /**
+     * @param permission - the permission
+     * @return true if the permission is in the snapshot and granted
+     */
+    public boolean isGranted(@NonNull String permission) {
+        return getState(permission) == State.GRANTED;
+    }
+
+    /**
+     * @return true if all the permissions are granted
+     */
+    public boolean isAllGranted() {
+        return counts[State.GRANTED.ordinal()] == permissions.length;
+    }
+
+    /**
+     * @param state - the state to count
+     * @return number of permissions in the state
+     */
+    public int count(@NonNull State state) {
+        return counts[state.ordinal()];
+    }
+
+    /**
+     * @return number of permissions that are not granted
+     */
+    public int countDenied() {
+        return permissions.length - counts[State.GRANTED.ordinal()];
+    }
+
+    /**
+     * @return all the permissions in the snapshot
+     */
+    @NonNull
+    public String[] getPermissions() {
+        return permissions.clone();
+    }
+
+    /**
+     * @param state - the state
+     * @return the permissions in the state
+     */
+    @NonNull
+    public String[] getPermissions(@NonNull State state) {
+        String[] result = new String[counts[state.ordinal()]];
+        for (int i = 0, j = 0; j < result.length; i++) {
+            if (states[i] == state)
+                result[j++] = permissions[i];
+        }
+        return result;
+    }
+
+    /**
+     * @param state - the state
+     * @return the permissions in the state as a set, in the order of the snapshot
+     */
+    @NonNull
+    public PermissionSet getPermissionSet(@NonNull State state) {
+        // a race builds the same immutable set twice
+        PermissionSet set = sets[state.ordinal()];
+        if (set == null) {
+            set = PermissionSet.of(getPermissions(state));
+            sets[state.ordinal()] = set;
+        }
+        return set;
+    }
+
+    /**
+     * @return the permissions that are not granted as a set, in the order of the snapshot
+     */
+    @NonNull
+    public PermissionSet getDeniedPermissionSet() {
+        PermissionSet set = denied;
+        if (set == null) {
+            set = PermissionSet.of(getDeniedPermissions());
+            denied = set;
+        }
+        return set;
+    }
+
+    /**
+     * @return the permissions that are not granted
+     */
+    @NonNull
+    public String[] getDeniedPermissions() {
+        String[] result = new String[countDenied()];
+        for (int i = 0, j = 0; j < result.length; i++) {
+            if (states[i].isDenied())
+                result[j++] = permissions[i];
+        }
+        return result;
+    }
+
+    /**
+     * @param other - another snapshot
+     * @return a snapshot with the permissions of this snapshot and then of the other
+     */
+    @NonNull
+    PermissionSnapshot merge(@NonNull PermissionSnapshot other) {
+        if (other.permissions.length == 0)
+            return this;
+        if (permissions.length == 0)
+            return other;
+        String[] mergedPermissions = Arrays.copyOf(permissions, permissions.length + other.permissions.length);
+        State[] mergedStates = Arrays.copyOf(states, states.length + other.states.length);
+        System.arraycopy(other.permissions, 0, mergedPermissions, permissions.length, other.permissions.length);
+        System.arraycopy(other.states, 0, mergedStates, states.length, other.states.length);
+        return new PermissionSnapshot(mergedPermissions, mergedStates, unrecorded + other.unrecorded);
+    }
+
+    /**
+     * @return true if the system dialog should be shown for the denied permissions: all can be asked again,
+     * or at least one has no record of being asked (never asked, or shows a rationale without a record)
+     */
+    boolean canRequestDenied() {
+        return counts[State.SHOULD_SHOW_RATIONALE.ordinal()] == countDenied()
+                || counts[State.NEVER_ASKED.ordinal()] > 0 || unrecorded > 0;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("PermissionSnapshot{");
+        for (int i = 0; i < permissions.length; i++) {
+            if (i > 0)
+                builder.append(", ");
+            builder.append(permissions[i]).append('=').append(states[i]);
+        }
+        return builder.append('}').toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PermissionSnapshot)) return false;
+        PermissionSnapshot that = (PermissionSnapshot) o;
+        return Arrays.equals(permissions, that.permissions) && Arrays.equals(states, that.states);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(permissions) + Arrays.hashCode(states);
+    }
+}
@@ -0,0 +1,89 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * permissions the system grants only after others, and the plan of the system requests for them.
+ * a dependent permission asked together with its prerequisite is denied without a dialog
+ */
+final class PermissionStages {
+    static final String ACCESS_BACKGROUND_LOCATION = "android.permission.ACCESS_BACKGROUND_LOCATION";
+    static final String BODY_SENSORS = "android.permission.BODY_SENSORS";
+    static final String BODY_SENSORS_BACKGROUND = "android.permission.BODY_SENSORS_BACKGROUND";
+
+    /**
+     * dependent -> prerequisites, one granted prerequisite is enough
+     */
+    private static final Map<String, String[]> DEPENDENCIES = new HashMap<>();
+
+    static {
+        DEPENDENCIES.put(ACCESS_BACKGROUND_LOCATION, new String[]{
+                PermissionGroups.ACCESS_FINE_LOCATION, PermissionGroups.ACCESS_COARSE_LOCATION});
+        DEPENDENCIES.put(BODY_SENSORS_BACKGROUND, new String[]{BODY_SENSORS});
+    }
+
+    private PermissionStages() {
+    }
+
+    /**
+     * the fewest ordered system requests for the permissions: a dependent permission goes one stage after
+     * the first stage that asks one of its prerequisites. a dependent whose prerequisite is granted or not
+     * asked goes to the first stage
+     *
+     * @param permissions - the permissions to ask
+     * @param host        - tells which prerequisites are granted
+     * @return the stages, one stage with all the permissions when nothing depends on another
+     */
+    @NonNull
+    static PermissionSet[] plan(@NonNull PermissionSet permissions, @NonNull PermissionHost host) {
+        String[] names = null;
+        int[] depths = null;
+        int stages = 1;
+        for (Map.Entry<String, String[]> entry : DEPENDENCIES.entrySet()) {
+            if (!permissions.contains(entry.getKey()))
+                continue;
+            if (names == null) {
+                names = permissions.toArray();
+                depths = new int[names.length];
+            }
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(entry.getKey()))
+                    stages = Math.max(stages, (depths[i] = depthOf(names[i], permissions, host)) + 1);
+            }
+        }
+        if (stages == 1)
+            return new PermissionSet[]{permissions};
+        PermissionSet[] plan = new PermissionSet[stages];
+        for (int stage = 0; stage < stages; stage++) {
+            String[] stageNames = new String[names.length];
+            int count = 0;
+            for (int i = 0; i < names.length; i++) {
+                if (depths[i] == stage)
+                    stageNames[count++] = names[i];
+            }
+            plan[stage] = PermissionSet.of(Arrays.copyOf(stageNames, count));
+        }
+        return plan;
+    }
+
+    /**
+     * @return the stage of the permission
+     */
+    private static int depthOf(String permission, PermissionSet permissions, PermissionHost host) {
+        String[] prerequisites = DEPENDENCIES.get(permission);
+        if (prerequisites == null)
+            return 0;
+        int depth = Integer.MAX_VALUE;
+        for (String prerequisite : prerequisites) {
+            if (host.isGranted(prerequisite))
+                return 0;
+            if (permissions.contains(prerequisite))
+                depth = Math.min(depth, depthOf(prerequisite, permissions, host) + 1);
+        }
+        return depth == Integer.MAX_VALUE ? 0 : depth;
+    }
+}
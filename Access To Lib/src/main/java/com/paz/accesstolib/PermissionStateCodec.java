@@ -0,0 +1,116 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * encode the permissions history as one record:
+ * <pre>
+ * version     - 1 byte
+ * count       - varint, number of permissions
+ * names       - count modified UTF-8 strings, the index of a name is its bit in the bitset
+ * asked       - (count + 7) / 8 bytes bitset, bit i set if permission i asked before
+ * </pre>
+ */
+final class PermissionStateCodec {
+    static final int VERSION = 1;
+
+    private PermissionStateCodec() {
+    }
+
+    /**
+     * @param asked - permission -> asked before
+     * @return the record
+     */
+    @NonNull
+    static byte[] encode(@NonNull Map<String, Boolean> asked) {
+        // sorted so the same state always gives the same record
+        TreeMap<String, Boolean> sorted = new TreeMap<>(asked);
+        int count = sorted.size();
+        byte[] bits = new byte[(count + 7) / 8];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + count * 32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(VERSION);
+            writeVarInt(out, count);
+            int index = 0;
+            for (Map.Entry<String, Boolean> entry : sorted.entrySet()) {
+                out.writeUTF(entry.getKey());
+                if (entry.getValue())
+                    bits[index >>> 3] |= 1 << (index & 7);
+                index++;
+            }
+            out.write(bits);
+            out.flush();
+        } catch (IOException e) {
+            // ByteArrayOutputStream doesn't throw
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param record - a record made by {@link #encode(Map)}
+     * @return permission -> asked before
+     * @throws IOException if the record is broken or from an unknown version
+     */
+    @NonNull
+    static Map<String, Boolean> decode(@NonNull byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        int version = in.readUnsignedByte();
+        if (version != VERSION)
+            throw new IOException("unknown record version " + version);
+        int count = readVarInt(in);
+        // every name takes at least its 2 length bytes, a broken count must not size the arrays
+        if (count < 0 || count > in.available() / 2)
+            throw new IOException("bad count " + count);
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++)
+            names[i] = readName(in);
+        byte[] bits = new byte[(count + 7) / 8];
+        in.readFully(bits);
+        Map<String, Boolean> asked = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++)
+            asked.put(names[i], (bits[i >>> 3] & (1 << (i & 7))) != 0);
+        return asked;
+    }
+
+    /**
+     * readUTF that checks the length before it allocates
+     */
+    private static String readName(DataInputStream in) throws IOException {
+        in.mark(2);
+        int length = in.readUnsignedShort();
+        if (length > in.available())
+            throw new IOException("bad name length " + length);
+        in.reset();
+        return in.readUTF();
+    }
+
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("bad varint");
+    }
+}
@@ -0,0 +1,37 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+
+import java.util.Set;
+
+/**
+ * where GiveMe keeps the permissions history ("was this permission asked before").
+ * built-in stores are available from {@link PermissionStores}.
+ */
+public interface PermissionStore {
+    /**
+     * @param permission - the permission to check
+     * @return true if the permission asked before
+     */
+    boolean isAskedBefore(@NonNull String permission);
+
+    /**
+     * mark permissions as asked. may be written to the disk later, see {@link #flush()}
+     *
+     * @param permissions - the permissions to mark
+     */
+    void markAsAsked(@NonNull String[] permissions);
+
+    /**
+     * @return all the permissions that asked before
+     */
+    @NonNull
+    Set<String> getAskedPermissions();
+
+    /**
+     * write the pending changes and wait until they are stored
+     *
+     * @return true if succeeded
+     */
+    boolean flush();
+}
@@ -0,0 +1,120 @@
+package com.paz.accesstolib;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Set;
+
+/**
+ * the built-in permission stores
+ */
+public final class PermissionStores {
+    private static volatile PermissionStore encrypted;
+    private static volatile PermissionStore plain;
+    private static volatile PermissionStore multiProcess;
+
+    private PermissionStores() {
+    }
+
+    /**
+     * the default store. EncryptedSharedPreferences with a keystore master key, loaded in the background.
+     * one instance per process
+     *
+     * @param context - any context, the application context is used
+     * @return the encrypted store
+     */
+    @NonNull
+    public static PermissionStore encrypted(@NonNull Context context) {
+        PermissionStore store = encrypted;
+        if (store == null) {
+            synchronized (PermissionStores.class) {
+                store = encrypted;
+                if (store == null) {
+                    store = new PermissionsCache(MySharedPreferences.getInstance(context));
+                    encrypted = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * plain SharedPreferences store, no keystore and no crypto. one instance per process
+     *
+     * @param context - any context, the application context is used
+     * @return the plain store
+     */
+    @NonNull
+    public static PermissionStore plain(@NonNull Context context) {
+        PermissionStore store = plain;
+        if (store == null) {
+            synchronized (PermissionStores.class) {
+                store = plain;
+                if (store == null) {
+                    store = new PermissionsCache(MySharedPreferences.getPlainInstance(context));
+                    plain = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * store for apps that run GiveMe in more than one process. a plain file under a file lock, shared by all the
+     * processes of the app, no crypto. each process reads it again only when another process wrote it.
+     * one instance per process
+     *
+     * @param context - any context, the application context is used
+     * @return the multi-process store
+     */
+    @NonNull
+    public static PermissionStore multiProcess(@NonNull Context context) {
+        PermissionStore store = multiProcess;
+        if (store == null) {
+            synchronized (PermissionStores.class) {
+                store = multiProcess;
+                if (store == null) {
+                    Context appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+                    store = new MultiProcessPermissionStore(appContext.getFilesDir());
+                    multiProcess = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * @return new store that keeps the history in memory only. for tests and short-lived flows
+     */
+    @NonNull
+    public static PermissionStore inMemory() {
+        return new InMemoryPermissionStore();
+    }
+
+    /**
+     * copy the permissions history from one store to another, for example from {@link #encrypted(Context)}
+     * to {@link #plain(Context)}. the source is not changed. blocks until the target is written
+     *
+     * @param from - the store to copy from
+     * @param to   - the store to copy to
+     * @return true if the target was written
+     */
+    public static boolean migrate(@NonNull PermissionStore from, @NonNull PermissionStore to) {
+        Set<String> asked = from.getAskedPermissions();
+        if (!asked.isEmpty())
+            to.markAsAsked(asked.toArray(new String[0]));
+        return to.flush();
+    }
+
+    @VisibleForTesting
+    static void resetInstances() {
+        synchronized (PermissionStores.class) {
+            MySharedPreferences.resetInstance();
+            encrypted = null;
+            plain = null;
+            multiProcess = null;
+        }
+    }
+}
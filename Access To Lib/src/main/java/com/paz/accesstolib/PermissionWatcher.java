@@ -0,0 +1,204 @@
+package com.paz.accesstolib;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * tells listeners when watched permissions are granted or revoked outside of a request, for example from the app setting
+ * while the app was in the background. the grant state of all the watched permissions is kept as one PermissionSet
+ * (a bitmask) and checked again when an activity resumes and when a request of GiveMe completes. listeners get only
+ * the permissions that changed since the last check.
+ * one watcher per process, main thread only
+ */
+public final class PermissionWatcher {
+
+    public interface Listener {
+        /**
+         * called on the main thread with the watched permissions of the listener that changed, at least one is not empty
+         *
+         * @param granted - the permissions that are granted now and were not before
+         * @param revoked - the permissions that were granted and are not now
+         */
+        void onChanged(@NonNull PermissionSet granted, @NonNull PermissionSet revoked);
+    }
+
+    /**
+     * checks the current state of one permission
+     */
+    interface GrantCheck {
+        boolean isGranted(@NonNull String permission);
+    }
+
+    private static final class Watch {
+        final PermissionSet permissions;
+        final Listener listener;
+
+        Watch(PermissionSet permissions, Listener listener) {
+            this.permissions = permissions;
+            this.listener = listener;
+        }
+    }
+
+    private static volatile PermissionWatcher instance;
+
+    private final GrantCheck check;
+    private final ArrayList<Watch> watches = new ArrayList<>();
+    /**
+     * the union of the watched permissions
+     */
+    private PermissionSet watched = PermissionSet.empty();
+    /**
+     * the watched permissions that were granted on the last check
+     */
+    private PermissionSet granted = PermissionSet.empty();
+
+    @VisibleForTesting
+    PermissionWatcher(@NonNull GrantCheck check) {
+        this.check = check;
+    }
+
+    /**
+     * get the process watcher. the first call registers it for the activities lifecycle
+     *
+     * @param context - any context
+     * @return the process watcher
+     */
+    @NonNull
+    public static PermissionWatcher get(@NonNull Context context) {
+        PermissionWatcher watcher = instance;
+        if (watcher == null) {
+            synchronized (PermissionWatcher.class) {
+                watcher = instance;
+                if (watcher == null) {
+                    Context appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+                    watcher = new PermissionWatcher(permission -> appContext.checkSelfPermission(permission) == PackageManager.PERMISSION_GRANTED);
+                    if (appContext instanceof Application)
+                        ((Application) appContext).registerActivityLifecycleCallbacks(watcher.new ResumeCallbacks());
+                    instance = watcher;
+                }
+            }
+        }
+        return watcher;
+    }
+
+    /**
+     * check the watched permissions again if the process watcher was created. GiveMe calls it when a request completes
+     */
+    static void onRequestCompleted() {
+        PermissionWatcher watcher = instance;
+        if (watcher != null)
+            watcher.check();
+    }
+
+    /**
+     * start watching permissions. their current state is the base, the listener gets only later changes
+     *
+     * @param permissions - the permissions to watch
+     * @param listener    - gets the changes of these permissions
+     */
+    public void watch(@NonNull PermissionSet permissions, @NonNull Listener listener) {
+        PermissionSet added = permissions.difference(watched);
+        if (!added.isEmpty()) {
+            granted = granted.union(grantedOf(added));
+            watched = watched.union(added);
+        }
+        watches.add(new Watch(permissions, listener));
+    }
+
+    /**
+     * stop watching the permissions of a listener
+     *
+     * @param listener - the listener passed to watch
+     */
+    public void unwatch(@NonNull Listener listener) {
+        PermissionSet remaining = PermissionSet.empty();
+        for (int i = watches.size() - 1; i >= 0; i--) {
+            if (watches.get(i).listener == listener)
+                watches.remove(i);
+            else
+                remaining = remaining.union(watches.get(i).permissions);
+        }
+        watched = remaining;
+        granted = granted.intersect(remaining);
+    }
+
+    /**
+     * check all the watched permissions now, with one system check per permission, and notify the listeners
+     * of the ones that changed
+     */
+    public void check() {
+        if (watched.isEmpty())
+            return;
+        PermissionSet now = grantedOf(watched);
+        if (now.equals(granted))
+            return;
+        PermissionSet newlyGranted = now.difference(granted);
+        PermissionSet revoked = granted.difference(now);
+        granted = now;
+        // a listener may unwatch from the callback
+        for (Watch watch : new ArrayList<>(watches)) {
+            if (watch.permissions.intersects(newlyGranted) || watch.permissions.intersects(revoked))
+                watch.listener.onChanged(newlyGranted.intersect(watch.permissions), revoked.intersect(watch.permissions));
+        }
+    }
+
+    /**
+     * @return the watched permissions that were granted on the last check
+     */
+    @NonNull
+    public PermissionSet getGranted() {
+        return granted;
+    }
+
+    private PermissionSet grantedOf(PermissionSet permissions) {
+        String[] names = permissions.toArray();
+        String[] granted = new String[names.length];
+        int count = 0;
+        for (String name : names) {
+            if (check.isGranted(name))
+                granted[count++] = name;
+        }
+        return PermissionSet.of(Arrays.copyOf(granted, count));
+    }
+
+    private final class ResumeCallbacks implements Application.ActivityLifecycleCallbacks {
+        @Override
+        public void onActivityResumed(@NonNull Activity activity) {
+            check();
+        }
+
+        @Override
+        public void onActivityCreated(@NonNull Activity activity, @Nullable Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(@NonNull Activity activity) {
+        }
+    }
+}
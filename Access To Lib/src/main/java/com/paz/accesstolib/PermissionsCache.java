@@ -0,0 +1,157 @@
+package com.paz.accesstolib;
+
+import android.util.Base64;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * in-memory write-through cache of the "asked before" flags in front of a MySharedPreferences.
+ * filled from the store on first use, after that reads never touch the store (and its crypto).
+ * the whole history is kept in one record (see PermissionStateCodec), so loading or saving it
+ * costs one decrypt or one encrypt.
+ */
+class PermissionsCache implements PermissionStore {
+    private static final String TAG = "PermissionsCache";
+    static final String STATE_KEY = "permissions-state";
+
+    /**
+     * the text form of the record in the store
+     */
+    interface RecordText {
+        String encode(byte[] record);
+
+        /**
+         * @throws IllegalArgumentException if the text is broken
+         */
+        byte[] decode(String text);
+    }
+
+    static final RecordText BASE64 = new RecordText() {
+        @Override
+        public String encode(byte[] record) {
+            return Base64.encodeToString(record, Base64.NO_WRAP);
+        }
+
+        @Override
+        public byte[] decode(String text) {
+            return Base64.decode(text, Base64.NO_WRAP);
+        }
+    };
+
+    private final MySharedPreferences msp;
+    private final RecordText text;
+    private final ConcurrentHashMap<String, Boolean> asked = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    PermissionsCache(MySharedPreferences msp) {
+        this(msp, BASE64);
+    }
+
+    /**
+     * @param msp  - the store
+     * @param text - the text form of the record, android.util.Base64 is not there in the JVM tests
+     */
+    @VisibleForTesting
+    PermissionsCache(MySharedPreferences msp, RecordText text) {
+        this.msp = msp;
+        this.text = text;
+    }
+
+    /**
+     * @param permission - the permission to check
+     * @return true if the permission asked before
+     */
+    @Override
+    public boolean isAskedBefore(@NonNull String permission) {
+        if (!loaded)
+            load();
+        Boolean value = asked.get(permission);
+        return value != null && value;
+    }
+
+    /**
+     * mark the permissions as asked in memory and write the record to the store
+     *
+     * @param permissions - the permissions to mark
+     */
+    @Override
+    public void markAsAsked(@NonNull String[] permissions) {
+        for (String permission : permissions)
+            asked.put(permission, Boolean.TRUE);
+        if (loaded) {
+            save();
+        } else {
+            // don't wait for the store here, the record is written once the history is loaded
+            msp.execute(() -> {
+                load();
+                save();
+            });
+        }
+    }
+
+    /**
+     * write the pending flags to the disk and wait for it
+     *
+     * @return true if the write succeeded
+     */
+    @Override
+    public boolean flush() {
+        return msp.flush();
+    }
+
+    @NonNull
+    @Override
+    public Set<String> getAskedPermissions() {
+        if (!loaded)
+            load();
+        Set<String> permissions = new HashSet<>();
+        for (Map.Entry<String, Boolean> entry : asked.entrySet()) {
+            if (entry.getValue())
+                permissions.add(entry.getKey());
+        }
+        return permissions;
+    }
+
+    private synchronized void save() {
+        msp.putString(STATE_KEY, text.encode(PermissionStateCodec.encode(asked)));
+    }
+
+    private synchronized void load() {
+        if (loaded)
+            return;
+        // putIfAbsent so flags marked while loading are not overridden by the older disk values
+        String record = msp.getString(STATE_KEY, null);
+        if (record != null) {
+            try {
+                for (Map.Entry<String, Boolean> entry : PermissionStateCodec.decode(text.decode(record)).entrySet())
+                    asked.putIfAbsent(entry.getKey(), entry.getValue());
+            } catch (IOException | IllegalArgumentException e) {
+                Log.e(TAG, "broken permissions record, starting with an empty history", e);
+            }
+        } else {
+            migrateLegacyKeys();
+        }
+        loaded = true;
+    }
+
+    /**
+     * the history used to be one key per permission. move it to the record once and remove the old keys
+     */
+    private void migrateLegacyKeys() {
+        Map<String, Boolean> legacy = msp.getAllBooleans();
+        if (legacy.isEmpty())
+            return;
+        for (Map.Entry<String, Boolean> entry : legacy.entrySet())
+            asked.putIfAbsent(entry.getKey(), entry.getValue());
+        save();
+        msp.remove(legacy.keySet());
+    }
+}
@@ -0,0 +1,89 @@
+package com.paz.accesstolib;
+
+import android.app.Activity;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * shows the dialogs of GiveMe: the rationale of requestPermissionsWithDialog and the app setting dialog of
+ * askPermissionsFromSetting / requestPermissionsWithForce. the default shows an AlertDialog with the texts from
+ * the library resources. implement it to use your own UI, for example a bottom sheet or a banner.
+ * see {@link GiveMe#setPromptRenderer(PromptRenderer)}
+ */
+public interface PromptRenderer {
+
+    final class Prompt {
+        public enum Kind {
+            /**
+             * requestPermissionsWithDialog, before the system dialog. positive is "Agree", negative is "Decline"
+             */
+            RATIONALE,
+            /**
+             * the permissions can be granted only from the app setting. positive opens the app setting ("RE TRY"),
+             * negative is "I'M SURE"
+             */
+            SETTING
+        }
+
+        private final Kind kind;
+        private final String title;
+        private final String message;
+        private final String[] permissions;
+
+        Prompt(@NonNull Kind kind, @Nullable String title, String message, @NonNull String[] permissions) {
+            this.kind = kind;
+            this.title = title;
+            this.message = message;
+            this.permissions = permissions;
+        }
+
+        @NonNull
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return the title the app passed, null for the default title of the kind
+         */
+        @Nullable
+        public String getTitle() {
+            return title;
+        }
+
+        /**
+         * @return the message the app passed
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * @return the permissions the prompt is about
+         */
+        @NonNull
+        public String[] getPermissions() {
+            return permissions.clone();
+        }
+    }
+
+    /**
+     * the answer of the user. call onPositive or onNegative at most once, and onDismiss once when the prompt is gone
+     */
+    interface Actions {
+        void onPositive();
+
+        void onNegative();
+
+        void onDismiss();
+    }
+
+    /**
+     * show a prompt. called on the main thread
+     *
+     * @param activity - the activity of the GiveMe
+     * @param prompt   - what to show
+     * @param actions  - call with the answer of the user
+     */
+    void show(@NonNull Activity activity, @NonNull Prompt prompt, @NonNull Actions actions);
+}
@@ -0,0 +1,46 @@
+package com.paz.accesstolib;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * process-wide allocator of request codes for requestPermissions and startActivityForResult.
+ * codes cycle in [first, first + count), so many GiveMe instances never get the same code at the same time
+ */
+final class RequestCodes {
+    static final int DEFAULT_FIRST = 0x7A00;
+    static final int DEFAULT_COUNT = 0x200;
+
+    private static volatile int first = DEFAULT_FIRST;
+    private static volatile int count = DEFAULT_COUNT;
+    private static final AtomicInteger next = new AtomicInteger();
+
+    private RequestCodes() {
+    }
+
+    /**
+     * @param first - the first code
+     * @param count - number of codes
+     * @throws IllegalArgumentException if the range is empty or not in 0..0xFFFF
+     */
+    static void setRange(int first, int count) {
+        if (count <= 0 || first < 0 || first + count - 1 > 0xFFFF)
+            throw new IllegalArgumentException("request codes must be in 0..0xFFFF");
+        RequestCodes.first = first;
+        RequestCodes.count = count;
+    }
+
+    /**
+     * @return number of codes in the range
+     */
+    static int count() {
+        return count;
+    }
+
+    /**
+     * @return the next free code
+     */
+    static int next() {
+        int range = count;
+        return first + (next.getAndIncrement() & Integer.MAX_VALUE) % range;
+    }
+}
@@ -0,0 +1,333 @@
+package com.paz.accesstolib;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * history of the permission prompts: for each permission the time and the outcome of the last prompt, and the number
+ * of prompts since it was last granted. GiveMe records every system dialog, app setting visit and declined dialog,
+ * and the BackoffPolicy reads it.
+ * reads come from memory and never wait for the file: until it's loaded in the background a permission without
+ * prompts in this process has no entry. the entries are appended to a compact file (see RequestLedgerCodec) in
+ * batches on a background thread. one ledger per process, the file is not encrypted and is kept out of backups
+ */
+public final class RequestLedger {
+    private static final String TAG = "RequestLedger";
+    private static final String FILE_NAME = "accessto-request-ledger";
+    /**
+     * appends that arrive within this window are written together
+     */
+    private static final long BATCH_WINDOW_MS = 100;
+    /**
+     * the file is rewritten with one entry per permission when it has more records than this per permission
+     */
+    private static final int COMPACT_RATIO = 8;
+
+    public enum Outcome {
+        /**
+         * the permission was granted
+         */
+        GRANTED,
+        /**
+         * the user denied the permission, it can be asked again
+         */
+        DENIED,
+        /**
+         * the user denied the permission with "don't ask me again"
+         */
+        NEVER_ASK_AGAIN,
+        /**
+         * the user declined the dialog of GiveMe before the system dialog or the app setting
+         */
+        DECLINED
+    }
+
+    public static final class Entry {
+        private final long time;
+        private final Outcome outcome;
+        private final int prompts;
+
+        Entry(long time, @NonNull Outcome outcome, int prompts) {
+            this.time = time;
+            this.outcome = outcome;
+            this.prompts = prompts;
+        }
+
+        /**
+         * @return the time of the last prompt, System.currentTimeMillis() (seconds precision after a restart)
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * @return the outcome of the last prompt
+         */
+        @NonNull
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * @return number of prompts since the permission was last granted, 0 if the last prompt granted it
+         */
+        public int getPrompts() {
+            return prompts;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "Entry{time=" + time + ", outcome=" + outcome + ", prompts=" + prompts + '}';
+        }
+    }
+
+    private static volatile RequestLedger instance;
+
+    private final File file;
+    private final ScheduledExecutorService executor;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    /**
+     * guards the entries updates, so the prompts recorded while the file loads are replayed on top of it
+     */
+    private final Object recordLock = new Object();
+    private boolean loaded;
+    /**
+     * the prompts recorded before the file was loaded, in order. null after the load
+     */
+    @Nullable
+    private ArrayList<String> earlyPermissions = new ArrayList<>();
+    @Nullable
+    private ArrayList<Entry> earlyEntries = new ArrayList<>();
+    private final Object pendingLock = new Object();
+    /**
+     * permissions with entries waiting for the next batch. the entry is read from memory when the batch is written,
+     * so a permission recorded twice in a batch is written once
+     */
+    private LinkedHashSet<String> pending = new LinkedHashSet<>();
+    private boolean flushScheduled;
+    /**
+     * the ids of the names in the file and number of records, used on the background thread only
+     */
+    private Map<String, Integer> ids = new HashMap<>();
+    private int records;
+    /**
+     * the file may end with broken bytes (a cut record or a failed append) or has ids that were not written,
+     * the next write rewrites it instead of appending. background thread only
+     */
+    private boolean needsCompact;
+
+    @VisibleForTesting
+    RequestLedger(@NonNull File file) {
+        this.file = file;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AccessTo-Ledger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::load);
+    }
+
+    /**
+     * get the process ledger. the first call starts loading it in the background
+     *
+     * @param context - any context
+     * @return the process ledger
+     */
+    @NonNull
+    public static RequestLedger get(@NonNull Context context) {
+        RequestLedger ledger = instance;
+        if (ledger == null) {
+            synchronized (RequestLedger.class) {
+                ledger = instance;
+                if (ledger == null) {
+                    Context appContext = context.getApplicationContext();
+                    ledger = new RequestLedger(new File((appContext != null ? appContext : context).getNoBackupFilesDir(), FILE_NAME));
+                    instance = ledger;
+                }
+            }
+        }
+        return ledger;
+    }
+
+    /**
+     * @param permission - the permission
+     * @return the last prompt of the permission or null if it was never recorded, or the file is not loaded yet
+     * and it was not recorded in this process
+     */
+    @Nullable
+    public Entry getEntry(@NonNull String permission) {
+        return entries.get(permission);
+    }
+
+    /**
+     * record a prompt of a permission. the entry is in memory right away and written in the next batch
+     *
+     * @param permission - the permission
+     * @param outcome    - the outcome of the prompt
+     * @param now        - System.currentTimeMillis()
+     */
+    void record(@NonNull String permission, @NonNull Outcome outcome, long now) {
+        synchronized (recordLock) {
+            Entry entry = next(entries.get(permission), outcome, now);
+            entries.put(permission, entry);
+            if (!loaded) {
+                earlyPermissions.add(permission);
+                earlyEntries.add(entry);
+            }
+        }
+        // the batch is written on the background thread after the load
+        synchronized (pendingLock) {
+            pending.add(permission);
+            if (flushScheduled)
+                return;
+            flushScheduled = true;
+        }
+        executor.schedule(this::writePending, BATCH_WINDOW_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * write the pending entries now and wait for it
+     *
+     * @return true if the write succeeded
+     */
+    public boolean flush() {
+        try {
+            return executor.submit(this::writePending).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            Log.e(TAG, "flush failed", e.getCause());
+            return false;
+        }
+    }
+
+    /**
+     * @param previous - the entry of the permission before the prompt, null if none
+     * @param outcome  - the outcome of the prompt
+     * @param now      - the time of the prompt
+     * @return the entry after the prompt
+     */
+    private static Entry next(@Nullable Entry previous, @NonNull Outcome outcome, long now) {
+        int prompts = outcome == Outcome.GRANTED ? 0 : (previous != null ? previous.prompts : 0) + 1;
+        return new Entry(now, outcome, prompts);
+    }
+
+    /**
+     * runs on the background thread
+     */
+    private void load() {
+        RequestLedgerCodec.Contents contents = null;
+        try (InputStream in = new FileInputStream(file)) {
+            contents = RequestLedgerCodec.read(in);
+        } catch (FileNotFoundException e) {
+            // no history yet
+        } catch (IOException e) {
+            Log.e(TAG, "broken ledger, starting with an empty history", e);
+            needsCompact = true;
+        }
+        synchronized (recordLock) {
+            if (contents != null) {
+                // the prompts of this process are newer than the file
+                HashMap<String, Entry> merged = new HashMap<>(contents.entries);
+                for (int i = 0; i < earlyPermissions.size(); i++) {
+                    String permission = earlyPermissions.get(i);
+                    Entry early = earlyEntries.get(i);
+                    merged.put(permission, next(merged.get(permission), early.outcome, early.time));
+                }
+                entries.putAll(merged);
+                ids = contents.ids;
+                records = contents.records;
+                needsCompact = contents.cut || records > COMPACT_RATIO * Math.max(1, entries.size());
+            }
+            loaded = true;
+            earlyPermissions = null;
+            earlyEntries = null;
+        }
+        if (needsCompact)
+            needsCompact = !compact();
+    }
+
+    /**
+     * runs on the background thread
+     */
+    private boolean writePending() {
+        LinkedHashSet<String> batch;
+        synchronized (pendingLock) {
+            batch = pending;
+            pending = new LinkedHashSet<>();
+            flushScheduled = false;
+        }
+        if (needsCompact) {
+            // the rewrite has the entries of the batch
+            needsCompact = !compact();
+            return !needsCompact;
+        }
+        if (batch.isEmpty())
+            return true;
+        boolean header = !file.exists() || file.length() == 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)))) {
+            if (header)
+                RequestLedgerCodec.writeHeader(out);
+            for (String permission : batch)
+                RequestLedgerCodec.writeEntry(out, ids, permission, entries.get(permission));
+        } catch (IOException e) {
+            // part of the batch may be in the file, and ids may have names that are not
+            Log.e(TAG, "can't append to the ledger", e);
+            needsCompact = !compact();
+            return !needsCompact;
+        }
+        records += batch.size();
+        if (records > COMPACT_RATIO * Math.max(1, entries.size()))
+            needsCompact = !compact();
+        return true;
+    }
+
+    /**
+     * rewrite the file with the last entry of each permission. runs on the background thread
+     *
+     * @return false if the file was not replaced
+     */
+    private boolean compact() {
+        File temp = new File(file.getPath() + ".tmp");
+        Map<String, Integer> newIds = new HashMap<>();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            RequestLedgerCodec.writeHeader(out);
+            for (Map.Entry<String, Entry> entry : entries.entrySet())
+                RequestLedgerCodec.writeEntry(out, newIds, entry.getKey(), entry.getValue());
+        } catch (IOException e) {
+            Log.e(TAG, "can't compact the ledger", e);
+            return false;
+        }
+        if (!temp.renameTo(file)) {
+            Log.e(TAG, "can't replace the ledger");
+            return false;
+        }
+        ids = newIds;
+        records = entries.size();
+        return true;
+    }
+}
@@ -0,0 +1,120 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * the append-only file of the RequestLedger:
+ * <pre>
+ * version     - 1 byte, once at the start of the file
+ * records     - until the end of the file, each starts with a tag byte:
+ *   NAME      - tag 0, varint id, modified UTF-8 name. gives an id to a permission name
+ *   ENTRY     - tag 1, varint id, varint time in seconds, 1 byte outcome, varint prompts. the last entry of an id wins
+ * </pre>
+ * a record cut by a crash at the end of the file is ignored
+ */
+final class RequestLedgerCodec {
+    static final int VERSION = 1;
+    private static final int TAG_NAME = 0;
+    private static final int TAG_ENTRY = 1;
+    private static final RequestLedger.Outcome[] OUTCOMES = RequestLedger.Outcome.values();
+
+    /**
+     * what was read from a file
+     */
+    static final class Contents {
+        final Map<String, RequestLedger.Entry> entries = new HashMap<>();
+        /**
+         * the ids of the names, the next appends to the same file use them
+         */
+        final Map<String, Integer> ids = new HashMap<>();
+        int records;
+        /**
+         * the file ends with a cut record, appending after it would break the next records
+         */
+        boolean cut;
+    }
+
+    private RequestLedgerCodec() {
+    }
+
+    static void writeHeader(@NonNull DataOutputStream out) throws IOException {
+        out.writeByte(VERSION);
+    }
+
+    /**
+     * append an entry, and the name of the permission if the file doesn't have it yet
+     *
+     * @param ids - the ids of the names in the file, updated with a new name
+     */
+    static void writeEntry(@NonNull DataOutputStream out, @NonNull Map<String, Integer> ids,
+                           @NonNull String permission, @NonNull RequestLedger.Entry entry) throws IOException {
+        Integer id = ids.get(permission);
+        if (id == null) {
+            id = ids.size();
+            out.writeByte(TAG_NAME);
+            PermissionStateCodec.writeVarInt(out, id);
+            out.writeUTF(permission);
+            ids.put(permission, id);
+        }
+        out.writeByte(TAG_ENTRY);
+        PermissionStateCodec.writeVarInt(out, id);
+        PermissionStateCodec.writeVarInt(out, (int) (entry.getTime() / 1000L));
+        out.writeByte(entry.getOutcome().ordinal());
+        PermissionStateCodec.writeVarInt(out, entry.getPrompts());
+    }
+
+    /**
+     * @param input - the file
+     * @return the last entry of each permission
+     * @throws IOException if the file is from an unknown version or broken before its end
+     */
+    @NonNull
+    static Contents read(@NonNull InputStream input) throws IOException {
+        Contents contents = new Contents();
+        DataInputStream in = new DataInputStream(input);
+        int version = in.read();
+        if (version < 0)
+            return contents;
+        if (version != VERSION)
+            throw new IOException("unknown ledger version " + version);
+        ArrayList<String> names = new ArrayList<>();
+        try {
+            while (true) {
+                int tag = in.read();
+                if (tag < 0)
+                    break;
+                int id = PermissionStateCodec.readVarInt(in);
+                if (tag == TAG_NAME) {
+                    String name = in.readUTF();
+                    if (id != names.size())
+                        throw new IOException("bad name id " + id);
+                    names.add(name);
+                    contents.ids.put(name, id);
+                } else if (tag == TAG_ENTRY) {
+                    long seconds = PermissionStateCodec.readVarInt(in) & 0xFFFFFFFFL;
+                    int outcome = in.readUnsignedByte();
+                    int prompts = PermissionStateCodec.readVarInt(in);
+                    if (id >= names.size() || outcome >= OUTCOMES.length)
+                        throw new IOException("bad entry " + id + "/" + outcome);
+                    contents.entries.put(names.get(id), new RequestLedger.Entry(seconds * 1000L, OUTCOMES[outcome], prompts));
+                } else {
+                    throw new IOException("bad tag " + tag);
+                }
+                contents.records++;
+            }
+        } catch (EOFException e) {
+            // the last record was cut, keep what was read before it
+            contents.cut = true;
+        }
+        return contents;
+    }
+}
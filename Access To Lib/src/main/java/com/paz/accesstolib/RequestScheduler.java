@@ -0,0 +1,182 @@
+package com.paz.accesstolib;
+
+import android.os.Handler;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.WeakHashMap;
+
+/**
+ * queue of permission requests. requests that arrive within {@link #MERGE_WINDOW_MS} are merged into one
+ * system dialog and the results are split back so every request gets its own callbacks.
+ * a request that arrives while the system dialog is showing waits for it, unless the dialog
+ * already asks for all its permissions.
+ * one scheduler per activity, shared by all its GiveMe instances, so they never show two system dialogs at once.
+ * main thread only.
+ */
+class RequestScheduler {
+    static final long MERGE_WINDOW_MS = 50;
+    /**
+     * the scheduler of each activity, main thread only
+     */
+    private static final WeakHashMap<Object, RequestScheduler> SCHEDULERS = new WeakHashMap<>();
+
+    interface Dispatcher {
+        /**
+         * show the system dialog
+         *
+         * @param permissions - the merged permissions of the queued requests
+         * @param requests    - the requests, pass them back to {@link #onResults(ArrayList, PermissionSnapshot)}
+         */
+        void request(@NonNull PermissionSet permissions, @NonNull ArrayList<PendingRequest> requests);
+
+    }
+
+    interface ResultCallback {
+        /**
+         * @param requested - the permissions of the request
+         * @param results   - the results of the system dialog, may have more permissions than the request
+         */
+        void onResults(@NonNull PermissionSet requested, @NonNull PermissionSnapshot results);
+    }
+
+    static final class PendingRequest {
+        final PermissionSet permissions;
+        final ResultCallback callback;
+        /**
+         * shows the system dialog if this request is the first of the merged ones
+         */
+        final Dispatcher dispatcher;
+        /**
+         * Metrics.start() of the flow that made the request, 0 if not measured
+         */
+        final long startNanos;
+
+        PendingRequest(@NonNull PermissionSet permissions, long startNanos, @NonNull ResultCallback callback,
+                       @NonNull Dispatcher dispatcher) {
+            this.permissions = permissions;
+            this.startNanos = startNanos;
+            this.callback = callback;
+            this.dispatcher = dispatcher;
+        }
+    }
+
+    private final Handler handler;
+    private final Runnable flush = this::flush;
+    private ArrayList<PendingRequest> queued = new ArrayList<>();
+    private ArrayList<PendingRequest> inFlight = new ArrayList<>();
+    private PermissionSet inFlightPermissions = PermissionSet.empty();
+    private boolean flushPosted;
+
+    RequestScheduler(@NonNull Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * @param owner   - the activity whose system dialogs the scheduler orders
+     * @param handler - a handler of the main thread, used if the scheduler is created
+     * @return the scheduler of the activity
+     */
+    @NonNull
+    static RequestScheduler of(@NonNull Object owner, @NonNull Handler handler) {
+        RequestScheduler scheduler = SCHEDULERS.get(owner);
+        if (scheduler == null) {
+            scheduler = new RequestScheduler(handler);
+            SCHEDULERS.put(owner, scheduler);
+        }
+        return scheduler;
+    }
+
+    /**
+     * @param permissions - the permissions to ask
+     * @param startNanos  - Metrics.start() of the flow that made the request
+     * @param callback    - gets the results of this request
+     * @param dispatcher  - shows the system dialog, the GiveMe that made the request
+     * @return the request, can be passed to {@link #cancel(PendingRequest)}
+     */
+    @NonNull
+    PendingRequest enqueue(@NonNull PermissionSet permissions, long startNanos, @NonNull ResultCallback callback,
+                           @NonNull Dispatcher dispatcher) {
+        PendingRequest request = new PendingRequest(permissions, startNanos, callback, dispatcher);
+        if (!inFlight.isEmpty() && inFlightPermissions.containsAll(permissions)) {
+            // the system dialog that is showing already asks for all of them
+            inFlight.add(request);
+            return request;
+        }
+        queued.add(request);
+        if (inFlight.isEmpty())
+            postFlush(MERGE_WINDOW_MS);
+        return request;
+    }
+
+    /**
+     * remove a request that is not sent yet. a request that is in flight still gets its results
+     *
+     * @param request - the request
+     * @return true if the request was removed before it was sent
+     */
+    boolean cancel(@NonNull PendingRequest request) {
+        return queued.remove(request);
+    }
+
+    /**
+     * a system dialog that was sent before the activity was recreated is still showing.
+     * new requests wait for it like for any system dialog
+     *
+     * @param permissions - the permissions of the dialog
+     * @param requests    - the requests waiting for the results
+     */
+    void restoreInFlight(@NonNull PermissionSet permissions, @NonNull ArrayList<PendingRequest> requests) {
+        inFlight = requests;
+        inFlightPermissions = permissions;
+    }
+
+    /**
+     * deliver the results to the requests that wait for them and send the next queued requests
+     *
+     * @param requests - the requests of the system dialog
+     * @param results  - the results of the system dialog
+     */
+    void onResults(@NonNull ArrayList<PendingRequest> requests, @NonNull PermissionSnapshot results) {
+        // release first so requests made from the callbacks go to the next dialog
+        release(requests);
+        for (PendingRequest request : requests)
+            request.callback.onResults(request.permissions, results);
+    }
+
+    /**
+     * the system dialog is done or abandoned, send the next queued requests
+     *
+     * @param requests - the requests of the system dialog
+     */
+    void release(@NonNull ArrayList<PendingRequest> requests) {
+        if (requests != inFlight)
+            return;
+        inFlight = new ArrayList<>();
+        inFlightPermissions = PermissionSet.empty();
+        if (!queued.isEmpty())
+            postFlush(0);
+    }
+
+    private void postFlush(long delay) {
+        if (flushPosted)
+            return;
+        flushPosted = true;
+        handler.postDelayed(flush, delay);
+    }
+
+    private void flush() {
+        flushPosted = false;
+        if (queued.isEmpty() || !inFlight.isEmpty())
+            return;
+        PermissionSet merged = PermissionSet.empty();
+        for (PendingRequest request : queued)
+            merged = merged.union(request.permissions);
+        inFlight = queued;
+        queued = new ArrayList<>();
+        inFlightPermissions = merged;
+        // the GiveMe of the first request gets the results and splits them to all the requests
+        inFlight.get(0).dispatcher.request(merged, inFlight);
+    }
+}
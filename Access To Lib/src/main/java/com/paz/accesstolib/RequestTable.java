@@ -0,0 +1,208 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * in-flight requests by request code. an open addressing int map, lookups don't box the code.
+ * entries older than {@link #EXPIRE_AFTER_MS} are dropped so abandoned requests don't leak.
+ * main thread only.
+ */
+final class RequestTable {
+    /**
+     * the user can stay in the app setting for a while, so this is long
+     */
+    static final long EXPIRE_AFTER_MS = 30 * 60 * 1000L;
+    private static final int NO_CODE = -1;
+
+    static final class Entry {
+        final int requestCode;
+        final PermissionSet permissions;
+        /**
+         * the requests waiting for a system dialog, null for the app setting
+         */
+        @Nullable
+        final ArrayList<RequestScheduler.PendingRequest> requests;
+        /**
+         * the listener waiting for the app setting, null for a system dialog
+         */
+        @Nullable
+        final GrantListener listener;
+        final long startTime;
+
+        Entry(int requestCode, PermissionSet permissions, @Nullable ArrayList<RequestScheduler.PendingRequest> requests,
+              @Nullable GrantListener listener, long startTime) {
+            this.requestCode = requestCode;
+            this.permissions = permissions;
+            this.requests = requests;
+            this.listener = listener;
+            this.startTime = startTime;
+        }
+
+        boolean isSetting() {
+            return requests == null;
+        }
+    }
+
+    interface ExpireListener {
+        void onExpired(@NonNull Entry entry);
+    }
+
+    private final ExpireListener expireListener;
+    private int[] codes = newCodes(8);
+    private Entry[] entries = new Entry[8];
+    private int size;
+
+    RequestTable(@NonNull ExpireListener expireListener) {
+        this.expireListener = expireListener;
+    }
+
+    private static int[] newCodes(int capacity) {
+        int[] codes = new int[capacity];
+        Arrays.fill(codes, NO_CODE);
+        return codes;
+    }
+
+    /**
+     * @param entry - the entry, replaces the entry with the same code
+     * @param now   - current time in ms, used to drop old entries
+     */
+    void put(@NonNull Entry entry, long now) {
+        expire(now);
+        if ((size + 1) * 2 > codes.length)
+            resize(codes.length * 2);
+        int slot = slotOf(entry.requestCode);
+        if (codes[slot] == NO_CODE)
+            size++;
+        codes[slot] = entry.requestCode;
+        entries[slot] = entry;
+    }
+
+    /**
+     * @param requestCode - the code
+     * @return the entry or null if the code is not in flight
+     */
+    @Nullable
+    Entry get(int requestCode) {
+        int slot = slotOf(requestCode);
+        return codes[slot] == NO_CODE ? null : entries[slot];
+    }
+
+    /**
+     * @param requestCode - the code
+     * @return the removed entry or null if the code is not in flight
+     */
+    @Nullable
+    Entry remove(int requestCode) {
+        int slot = slotOf(requestCode);
+        if (codes[slot] == NO_CODE)
+            return null;
+        Entry entry = entries[slot];
+        removeSlot(slot);
+        return entry;
+    }
+
+    /**
+     * @return all the entries, for saving the state
+     */
+    @NonNull
+    ArrayList<Entry> entries() {
+        ArrayList<Entry> result = new ArrayList<>(size);
+        for (int i = 0; i < codes.length; i++) {
+            if (codes[i] != NO_CODE)
+                result.add(entries[i]);
+        }
+        return result;
+    }
+
+    /**
+     * @return the time in ms when the oldest entry expires, Long.MAX_VALUE if there are no entries
+     */
+    long nextExpiry() {
+        long next = Long.MAX_VALUE;
+        for (int i = 0; i < codes.length; i++) {
+            if (codes[i] != NO_CODE)
+                next = Math.min(next, entries[i].startTime + EXPIRE_AFTER_MS + 1);
+        }
+        return next;
+    }
+
+    /**
+     * drop the entries that are older than {@link #EXPIRE_AFTER_MS}
+     *
+     * @param now - current time in ms
+     */
+    void expire(long now) {
+        ArrayList<Entry> expired = null;
+        for (int i = 0; i < codes.length; i++) {
+            if (codes[i] != NO_CODE && now - entries[i].startTime > EXPIRE_AFTER_MS) {
+                if (expired == null)
+                    expired = new ArrayList<>(2);
+                expired.add(entries[i]);
+            }
+        }
+        if (expired == null)
+            return;
+        // removed by code after the scan: a delete moves the next entries of the cluster, which may wrap to the start
+        for (Entry entry : expired)
+            remove(entry.requestCode);
+        for (Entry entry : expired)
+            expireListener.onExpired(entry);
+    }
+
+    /**
+     * @return the slot of the code or the empty slot where it should be
+     */
+    private int slotOf(int requestCode) {
+        int mask = codes.length - 1;
+        int slot = mix(requestCode) & mask;
+        while (codes[slot] != NO_CODE && codes[slot] != requestCode)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /**
+     * linear probing delete: move back the entries that follow so lookups don't stop at the hole
+     */
+    private void removeSlot(int slot) {
+        int mask = codes.length - 1;
+        codes[slot] = NO_CODE;
+        entries[slot] = null;
+        size--;
+        int next = (slot + 1) & mask;
+        while (codes[next] != NO_CODE) {
+            int code = codes[next];
+            Entry entry = entries[next];
+            codes[next] = NO_CODE;
+            entries[next] = null;
+            int target = slotOf(code);
+            codes[target] = code;
+            entries[target] = entry;
+            next = (next + 1) & mask;
+        }
+    }
+
+    private void resize(int capacity) {
+        int[] oldCodes = codes;
+        Entry[] oldEntries = entries;
+        codes = newCodes(capacity);
+        entries = new Entry[capacity];
+        for (int i = 0; i < oldCodes.length; i++) {
+            if (oldCodes[i] != NO_CODE) {
+                int slot = slotOf(oldCodes[i]);
+                codes[slot] = oldCodes[i];
+                entries[slot] = oldEntries[i];
+            }
+        }
+    }
+
+    @VisibleForTesting
+    static int mix(int code) {
+        int h = code * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
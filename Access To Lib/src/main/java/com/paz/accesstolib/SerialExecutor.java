@@ -0,0 +1,53 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * runs tasks one at a time and in order on another executor, which may run them on many threads.
+ * keeps the order of the callbacks of a request on an executor chosen by the app
+ */
+final class SerialExecutor implements Executor {
+    private final Executor executor;
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private boolean running;
+
+    SerialExecutor(@NonNull Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(@NonNull Runnable task) {
+        synchronized (tasks) {
+            tasks.add(task);
+            if (running)
+                return;
+            running = true;
+        }
+        executor.execute(this::drain);
+    }
+
+    private void drain() {
+        boolean failed = true;
+        try {
+            while (true) {
+                Runnable task;
+                synchronized (tasks) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        running = false;
+                        failed = false;
+                        return;
+                    }
+                }
+                task.run();
+            }
+        } finally {
+            // a task threw, the next tasks still run
+            if (failed)
+                executor.execute(this::drain);
+        }
+    }
+}
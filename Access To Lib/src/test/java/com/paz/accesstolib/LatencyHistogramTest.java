@@ -0,0 +1,60 @@
+package com.paz.accesstolib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketOf_isLog2() {
+        assertEquals(0, LatencyHistogram.bucketOf(0));
+        assertEquals(0, LatencyHistogram.bucketOf(1));
+        assertEquals(1, LatencyHistogram.bucketOf(2));
+        assertEquals(1, LatencyHistogram.bucketOf(3));
+        assertEquals(10, LatencyHistogram.bucketOf(1024));
+        assertEquals(62, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void record_updatesCountSumMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.record(300);
+        histogram.record(-5);
+
+        assertEquals(3, histogram.getCount());
+        assertEquals(400, histogram.getSum());
+        assertEquals(300, histogram.getMax());
+        assertEquals(133, histogram.getMean());
+        assertEquals(1, histogram.getBucketCount(0));
+    }
+
+    @Test
+    public void percentile_returnsBucketUpperBound() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+        for (int i = 0; i < 9; i++)
+            histogram.record(1000); // bucket 9
+        histogram.record(1_000_000); // bucket 19
+
+        assertEquals(1023, histogram.getPercentile(50));
+        assertEquals(1023, histogram.getPercentile(90));
+        assertEquals((1L << 20) - 1, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void recorder_countsOutcomes() {
+        PermissionMetricsRecorder recorder = new PermissionMetricsRecorder();
+        recorder.onOutcome(2, 1, 0);
+        recorder.onOutcome(0, 0, 1);
+        recorder.onLatency(PermissionMetrics.Stage.SYSTEM_DIALOG, 500);
+
+        assertEquals(2, recorder.getRequestCount());
+        assertEquals(2, recorder.getGrantedCount());
+        assertEquals(1, recorder.getNotGrantedCount());
+        assertEquals(1, recorder.getNeverAskAgainCount());
+        assertEquals(1, recorder.getHistogram(PermissionMetrics.Stage.SYSTEM_DIALOG).getCount());
+        assertEquals(0, recorder.getHistogram(PermissionMetrics.Stage.STORE_INIT).getCount());
+    }
+}
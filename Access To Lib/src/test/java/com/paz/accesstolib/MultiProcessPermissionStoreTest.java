@@ -0,0 +1,49 @@
+package com.paz.accesstolib;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MultiProcessPermissionStoreTest {
+    private static final String CAMERA = "android.permission.CAMERA";
+    private static final String CONTACTS = "android.permission.READ_CONTACTS";
+
+    @Test
+    public void write_isSeenByOtherProcess() throws IOException {
+        File dir = Files.createTempDirectory("store").toFile();
+        // two instances on the same files act like two processes
+        PermissionStore sync = new MultiProcessPermissionStore(dir);
+        PermissionStore ui = new MultiProcessPermissionStore(dir);
+        assertFalse(ui.isAskedBefore(CAMERA));
+
+        sync.markAsAsked(new String[]{CAMERA});
+        assertTrue(sync.flush());
+
+        assertTrue(ui.isAskedBefore(CAMERA));
+        assertTrue(new MultiProcessPermissionStore(dir).isAskedBefore(CAMERA));
+    }
+
+    @Test
+    public void write_mergesFlagsOfBothProcesses() throws IOException {
+        File dir = Files.createTempDirectory("store").toFile();
+        PermissionStore sync = new MultiProcessPermissionStore(dir);
+        PermissionStore ui = new MultiProcessPermissionStore(dir);
+
+        sync.markAsAsked(new String[]{CAMERA});
+        ui.markAsAsked(new String[]{CONTACTS});
+        assertTrue(sync.flush());
+        assertTrue(ui.flush());
+
+        HashSet<String> both = new HashSet<>(Arrays.asList(CAMERA, CONTACTS));
+        assertEquals(both, new MultiProcessPermissionStore(dir).getAskedPermissions());
+        assertEquals(both, sync.getAskedPermissions());
+    }
+}
@@ -0,0 +1,114 @@
+package com.paz.accesstolib;
+
+import android.content.SharedPreferences;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MySharedPreferencesTest {
+    private ScheduledExecutorService executor;
+    private FakeSharedPreferences prefs;
+    private MySharedPreferences msp;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        prefs = new FakeSharedPreferences();
+        msp = new MySharedPreferences(executor.submit(() -> (SharedPreferences) prefs), executor);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void reads_seePendingWrites() {
+        prefs.edit().putString("removed", "old").putBoolean("flag", true).commit();
+        CountDownLatch release = blockWrites();
+
+        msp.putString("key", "value");
+        msp.putBoolean("asked", true);
+        msp.remove(Collections.singleton("removed"));
+        msp.remove(Collections.singleton("flag"));
+
+        assertEquals("value", msp.getString("key", null));
+        assertTrue(msp.getBoolean("asked", false));
+        assertNull(msp.getString("removed", null));
+        assertEquals(Collections.singletonMap("asked", true), msp.getAllBooleans());
+        // nothing reached the store after the setup commit
+        assertNull(prefs.getString("key", null));
+        assertEquals(1, prefs.commits);
+        assertEquals(0, prefs.applies);
+        release.countDown();
+    }
+
+    @Test
+    public void puts_withinTheWindowAreOneWrite() throws Exception {
+        CountDownLatch release = blockWrites();
+        msp.putString("a", "1");
+        msp.putString("b", "2");
+        msp.putBoolean("c", true);
+        msp.putString("a", "3");
+        release.countDown();
+
+        waitPastWindow();
+
+        assertEquals(1, prefs.applies);
+        assertEquals(0, prefs.commits);
+        assertEquals("3", prefs.getString("a", null));
+        assertEquals("2", prefs.getString("b", null));
+        assertTrue(prefs.getBoolean("c", false));
+    }
+
+    @Test
+    public void flush_commitsPendingWrites() throws Exception {
+        msp.putString("a", "1");
+        msp.putBoolean("b", true);
+
+        assertTrue(msp.flush());
+
+        assertEquals(1, prefs.commits);
+        assertEquals("1", prefs.getString("a", null));
+        assertTrue(prefs.getBoolean("b", false));
+
+        // the timer of the puts finds nothing left to write
+        int applies = prefs.applies;
+        waitPastWindow();
+        assertEquals(applies, prefs.applies);
+    }
+
+    /**
+     * hold the store thread so the writes stay pending
+     *
+     * @return count it down to let the thread go
+     */
+    private CountDownLatch blockWrites() {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        return release;
+    }
+
+    private void waitPastWindow() throws ExecutionException, InterruptedException {
+        executor.schedule(() -> {
+        }, 2 * MySharedPreferences.COALESCE_WINDOW_MS, TimeUnit.MILLISECONDS).get();
+    }
+}
@@ -0,0 +1,230 @@
+package com.paz.accesstolib;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PermissionEngineTest {
+    private static final String CAMERA = "android.permission.CAMERA";
+    private static final String CONTACTS = "android.permission.READ_CONTACTS";
+    private static final String LOCATION = "android.permission.ACCESS_FINE_LOCATION";
+
+    private static final class FakeHost implements PermissionHost {
+        final Set<String> granted = new HashSet<>();
+        final Set<String> rationale = new HashSet<>();
+        final Set<String> asked = new HashSet<>();
+        final Set<String> undeclared = new HashSet<>();
+        final List<String> requested = new ArrayList<>();
+        int settingsCode = -1;
+
+        @Override
+        public boolean isGranted(String permission) {
+            return granted.contains(permission);
+        }
+
+        @Override
+        public boolean shouldShowRationale(String permission) {
+            return rationale.contains(permission);
+        }
+
+        @Override
+        public boolean isDeclared(String permission) {
+            return !undeclared.contains(permission);
+        }
+
+        @Override
+        public boolean isAskedBefore(String permission) {
+            return asked.contains(permission);
+        }
+
+        @Override
+        public void markAsAsked(String[] permissions) {
+            asked.addAll(Arrays.asList(permissions));
+        }
+
+        @Override
+        public void requestPermissions(String[] permissions, int requestCode) {
+            requested.addAll(Arrays.asList(permissions));
+        }
+
+        @Override
+        public void startSettings(int requestCode) {
+            settingsCode = requestCode;
+        }
+    }
+
+    private static final class RecordingListener implements GrantListener {
+        Boolean allGranted;
+        String[] notGranted;
+        String[] neverAskAgain;
+
+        @Override
+        public void onGranted(boolean allGranted) {
+            this.allGranted = allGranted;
+        }
+
+        @Override
+        public void onNotGranted(String[] permissions) {
+            notGranted = permissions;
+        }
+
+        @Override
+        public void onNeverAskAgain(String[] permissions) {
+            neverAskAgain = permissions;
+        }
+    }
+
+    @Test
+    public void snapshot_mapsHostToStates() {
+        FakeHost host = new FakeHost();
+        host.granted.add(CAMERA);
+        host.rationale.add(CONTACTS);
+        host.asked.add(LOCATION);
+
+        PermissionSnapshot snapshot = new PermissionEngine(host).snapshot(new String[]{CAMERA, CONTACTS, LOCATION});
+
+        assertEquals(PermissionSnapshot.State.GRANTED, snapshot.getState(CAMERA));
+        assertEquals(PermissionSnapshot.State.SHOULD_SHOW_RATIONALE, snapshot.getState(CONTACTS));
+        assertEquals(PermissionSnapshot.State.NEVER_ASK_AGAIN, snapshot.getState(LOCATION));
+    }
+
+    @Test
+    public void decide_followsSnapshot() {
+        FakeHost host = new FakeHost();
+        PermissionEngine engine = new PermissionEngine(host);
+        String[] permissions = {CAMERA, CONTACTS};
+
+        assertEquals(PermissionEngine.Action.REQUEST, PermissionEngine.decide(engine.snapshot(permissions)));
+
+        host.asked.add(CAMERA);
+        host.asked.add(CONTACTS);
+        assertEquals(PermissionEngine.Action.SETTINGS, PermissionEngine.decide(engine.snapshot(permissions)));
+
+        host.rationale.add(CAMERA);
+        assertEquals(PermissionEngine.Action.SETTINGS, PermissionEngine.decide(engine.snapshot(permissions)));
+
+        host.rationale.add(CONTACTS);
+        assertEquals(PermissionEngine.Action.REQUEST, PermissionEngine.decide(engine.snapshot(permissions)));
+
+        host.granted.add(CAMERA);
+        host.granted.add(CONTACTS);
+        assertEquals(PermissionEngine.Action.NONE, PermissionEngine.decide(engine.snapshot(permissions)));
+    }
+
+    @Test
+    public void decide_requestsRationaleWithoutRecord() {
+        FakeHost host = new FakeHost();
+        PermissionEngine engine = new PermissionEngine(host);
+        String[] permissions = {CAMERA, CONTACTS, LOCATION};
+        // CAMERA and CONTACTS are "don't ask me again", LOCATION was denied before the store recorded it
+        host.asked.add(CAMERA);
+        host.asked.add(CONTACTS);
+        host.rationale.add(LOCATION);
+
+        assertEquals(PermissionEngine.Action.REQUEST, PermissionEngine.decide(engine.snapshot(permissions)));
+
+        host.asked.add(LOCATION);
+        assertEquals(PermissionEngine.Action.SETTINGS, PermissionEngine.decide(engine.snapshot(permissions)));
+    }
+
+    @Test
+    public void request_marksAsAskedAndCallsHost() {
+        FakeHost host = new FakeHost();
+        PermissionEngine engine = new PermissionEngine(host);
+
+        engine.request(PermissionSet.of(CAMERA, CONTACTS), 7);
+
+        assertTrue(host.asked.contains(CAMERA));
+        assertTrue(host.asked.contains(CONTACTS));
+        assertEquals(2, host.requested.size());
+    }
+
+    @Test
+    public void deliver_splitsResultsPerRequest() {
+        FakeHost host = new FakeHost();
+        host.rationale.add(CONTACTS);
+        PermissionEngine engine = new PermissionEngine(host);
+        PermissionSnapshot results = engine.resultSnapshot(new String[]{CAMERA, CONTACTS, LOCATION},
+                new int[]{PermissionEngine.PERMISSION_GRANTED, -1, -1});
+
+        RecordingListener cameraOnly = new RecordingListener();
+        PermissionEngine.deliver(cameraOnly, PermissionSet.of(CAMERA), results);
+        assertTrue(cameraOnly.allGranted);
+        assertEquals(null, cameraOnly.notGranted);
+
+        RecordingListener all = new RecordingListener();
+        PermissionEngine.deliver(all, PermissionSet.of(CAMERA, CONTACTS, LOCATION), results);
+        assertFalse(all.allGranted);
+        assertArrayEquals(new String[]{CONTACTS}, all.notGranted);
+        assertArrayEquals(new String[]{LOCATION}, all.neverAskAgain);
+    }
+
+    @Test
+    public void normalize_removesDuplicatesAndAddsCoarseLocation() {
+        FakeHost host = new FakeHost();
+        PermissionEngine engine = new PermissionEngine(host);
+        String coarse = "android.permission.ACCESS_COARSE_LOCATION";
+        String[] same = {CAMERA, CONTACTS};
+
+        assertSame(same, engine.normalize(same));
+        assertArrayEquals(new String[]{CAMERA, LOCATION, coarse}, engine.normalize(new String[]{CAMERA, LOCATION, CAMERA}));
+        assertArrayEquals(new String[]{coarse, LOCATION}, engine.normalize(new String[]{coarse, LOCATION}));
+
+        host.undeclared.add(coarse);
+        String[] fineOnly = {LOCATION};
+        assertSame(fineOnly, engine.normalize(fineOnly));
+    }
+
+    @Test
+    public void undeclared_splitsByManifest() {
+        FakeHost host = new FakeHost();
+        host.undeclared.add(CONTACTS);
+        PermissionEngine engine = new PermissionEngine(host);
+        String[] permissions = {CAMERA, CONTACTS, LOCATION};
+
+        assertArrayEquals(new String[]{CONTACTS}, engine.undeclared(permissions));
+        assertArrayEquals(new String[]{CAMERA, LOCATION}, engine.declared(permissions));
+        assertEquals(0, engine.undeclared(new String[]{CAMERA}).length);
+    }
+
+    @Test
+    public void stages_askBackgroundAfterForeground() {
+        FakeHost host = new FakeHost();
+        PermissionEngine engine = new PermissionEngine(host);
+        String background = PermissionStages.ACCESS_BACKGROUND_LOCATION;
+
+        PermissionSet[] stages = engine.stages(PermissionSet.of(CAMERA, LOCATION, background));
+        assertEquals(2, stages.length);
+        assertEquals(PermissionSet.of(CAMERA, LOCATION), stages[0]);
+        assertEquals(PermissionSet.of(background), stages[1]);
+
+        assertEquals(1, engine.stages(PermissionSet.of(CAMERA, LOCATION)).length);
+
+        host.granted.add(LOCATION);
+        assertEquals(1, engine.stages(PermissionSet.of(CAMERA, background)).length);
+    }
+
+    @Test
+    public void deliver_countsMissingAsNotGranted() {
+        FakeHost host = new FakeHost();
+        PermissionEngine engine = new PermissionEngine(host);
+        PermissionSnapshot results = engine.resultSnapshot(new String[]{CAMERA}, new int[]{PermissionEngine.PERMISSION_GRANTED});
+
+        RecordingListener listener = new RecordingListener();
+        PermissionEngine.deliver(listener, PermissionSet.of(CAMERA, LOCATION), results);
+
+        assertFalse(listener.allGranted);
+        assertArrayEquals(new String[]{LOCATION}, listener.notGranted);
+        assertEquals(null, listener.neverAskAgain);
+    }
+}
@@ -0,0 +1,96 @@
+package com.paz.accesstolib;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PermissionFutureTest {
+    private static final PermissionResult GRANTED = PermissionResult.allGranted(PermissionSet.of("android.permission.CAMERA"));
+
+    @Test
+    public void then_beforeAndAfterComplete() {
+        ArrayList<PermissionResult> results = new ArrayList<>();
+        PermissionFuture future = new PermissionFuture();
+
+        future.then(results::add);
+        assertTrue(future.complete(GRANTED));
+        future.then(results::add);
+
+        assertEquals(2, results.size());
+        assertSame(GRANTED, results.get(0));
+        assertSame(GRANTED, future.getNow());
+        assertFalse(future.complete(GRANTED));
+    }
+
+    @Test
+    public void cancel_runsHookAndSkipsCallbacks() {
+        ArrayList<PermissionResult> results = new ArrayList<>();
+        boolean[] hook = new boolean[1];
+        PermissionFuture future = new PermissionFuture();
+        future.setOnCancel(() -> hook[0] = true);
+        future.then(results::add);
+
+        assertTrue(future.cancel());
+
+        assertTrue(hook[0]);
+        assertTrue(future.isDone());
+        assertFalse(future.complete(GRANTED));
+        assertNull(future.getNow());
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    public void thenRequest_completesWithNextResult() {
+        PermissionResult next = PermissionResult.allGranted(PermissionSet.of("android.permission.ACCESS_BACKGROUND_LOCATION"));
+        PermissionFuture first = new PermissionFuture();
+        PermissionFuture second = new PermissionFuture();
+        PermissionFuture chained = first.thenRequest(result -> second);
+
+        first.complete(GRANTED);
+        assertFalse(chained.isDone());
+        second.complete(next);
+
+        assertSame(next, chained.getNow());
+    }
+
+    @Test
+    public void thenRequest_cancelCancelsRunningRequest() {
+        PermissionFuture first = new PermissionFuture();
+        PermissionFuture second = new PermissionFuture();
+        PermissionFuture chained = first.thenRequest(result -> second);
+
+        first.complete(GRANTED);
+        chained.cancel();
+
+        assertTrue(second.isCancelled());
+    }
+
+    @Test
+    public void thenRequest_upstreamCancelCancelsChained() {
+        PermissionFuture first = new PermissionFuture();
+        PermissionFuture chained = first.thenRequest(result -> new PermissionFuture());
+
+        first.cancel();
+
+        assertTrue(chained.isCancelled());
+    }
+
+    @Test
+    public void thenRequest_innerCancelCancelsChained() {
+        PermissionFuture first = new PermissionFuture();
+        PermissionFuture second = new PermissionFuture();
+        PermissionFuture chained = first.thenRequest(result -> second);
+
+        first.complete(GRANTED);
+        second.cancel();
+
+        assertTrue(chained.isCancelled());
+        assertFalse(first.isCancelled());
+    }
+}
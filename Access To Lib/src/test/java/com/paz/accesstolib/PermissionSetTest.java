@@ -0,0 +1,83 @@
+package com.paz.accesstolib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PermissionSetTest {
+    private static final String CAMERA = "android.permission.CAMERA";
+    private static final String CONTACTS = "android.permission.READ_CONTACTS";
+    private static final String LOCATION = "android.permission.ACCESS_FINE_LOCATION";
+
+    @Test
+    public void of_containsOnlyGiven() {
+        PermissionSet set = PermissionSet.of(CAMERA, CONTACTS);
+
+        assertEquals(2, set.size());
+        assertTrue(set.contains(CAMERA));
+        assertTrue(set.contains(CONTACTS));
+        assertFalse(set.contains(LOCATION));
+        assertFalse(set.contains("never.interned.PERMISSION"));
+    }
+
+    @Test
+    public void setOperations() {
+        PermissionSet cameraContacts = PermissionSet.of(CAMERA, CONTACTS);
+        PermissionSet contactsLocation = PermissionSet.of(CONTACTS, LOCATION);
+
+        assertEquals(PermissionSet.of(CAMERA, CONTACTS, LOCATION), cameraContacts.union(contactsLocation));
+        assertEquals(PermissionSet.of(CAMERA), cameraContacts.difference(contactsLocation));
+        assertEquals(PermissionSet.of(CONTACTS), cameraContacts.intersect(contactsLocation));
+        assertTrue(cameraContacts.intersects(contactsLocation));
+        assertTrue(cameraContacts.containsAll(PermissionSet.of(CAMERA)));
+        assertFalse(cameraContacts.containsAll(contactsLocation));
+    }
+
+    @Test
+    public void unchangedResult_isSameInstance() {
+        PermissionSet set = PermissionSet.of(CAMERA, CONTACTS);
+
+        assertSame(set, set.union(PermissionSet.of(CAMERA)));
+        assertSame(set, set.difference(PermissionSet.empty()));
+        assertSame(PermissionSet.empty(), set.difference(set));
+    }
+
+    @Test
+    public void toArray_inGivenOrder() {
+        PermissionSet.of(CAMERA, CONTACTS, LOCATION);
+
+        assertArrayEquals(new String[]{LOCATION, CAMERA}, PermissionSet.of(LOCATION, CAMERA, LOCATION).toArray());
+        assertArrayEquals(new String[]{CONTACTS, CAMERA, LOCATION},
+                PermissionSet.of(CONTACTS).union(PermissionSet.of(CAMERA, LOCATION)).toArray());
+        assertArrayEquals(new String[]{LOCATION, CAMERA},
+                PermissionSet.of(LOCATION, CONTACTS, CAMERA).difference(PermissionSet.of(CONTACTS)).toArray());
+        assertEquals(PermissionSet.of(CAMERA, LOCATION), PermissionSet.of(LOCATION, CAMERA));
+        assertEquals(0, PermissionSet.empty().toArray().length);
+    }
+
+    @Test
+    public void moreThan64Permissions() {
+        String[] names = new String[100];
+        for (int i = 0; i < names.length; i++)
+            names[i] = "test.permission.P" + i;
+        PermissionSet all = PermissionSet.of(names);
+        PermissionSet last = PermissionSet.of(names[99], names[98], CAMERA);
+
+        assertEquals(100, all.size());
+        assertArrayEquals(names, all.toArray());
+        assertTrue(all.contains(names[99]));
+        assertFalse(all.contains(CAMERA));
+        assertTrue(all.containsAll(PermissionSet.of(names[99], names[0])));
+        assertFalse(all.containsAll(last));
+        assertTrue(all.intersects(PermissionSet.of(names[98])));
+        assertEquals(PermissionSet.of(names[98], names[99]), all.intersect(last));
+        assertEquals(PermissionSet.of(CAMERA), last.difference(all));
+        assertEquals(101, all.union(last).size());
+        assertEquals(PermissionSet.of(names[99], names[98]), PermissionSet.of(names[98], names[99]));
+        assertEquals(PermissionSet.of(names[99], names[98]).hashCode(), PermissionSet.of(names[98], names[99]).hashCode());
+    }
+}
@@ -0,0 +1,79 @@
+package com.paz.accesstolib;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class PermissionStateCodecTest {
+
+    @Test
+    public void roundTrip() throws IOException {
+        Map<String, Boolean> asked = new HashMap<>();
+        for (int i = 0; i < 20; i++)
+            asked.put("android.permission.P" + i, i % 3 != 0);
+
+        assertEquals(asked, PermissionStateCodec.decode(PermissionStateCodec.encode(asked)));
+    }
+
+    @Test
+    public void roundTrip_empty() throws IOException {
+        assertEquals(new HashMap<String, Boolean>(), PermissionStateCodec.decode(PermissionStateCodec.encode(new HashMap<>())));
+    }
+
+    @Test
+    public void encode_isStable() {
+        Map<String, Boolean> first = new HashMap<>();
+        first.put("android.permission.CAMERA", true);
+        first.put("android.permission.READ_CONTACTS", true);
+        Map<String, Boolean> second = new HashMap<>();
+        second.put("android.permission.READ_CONTACTS", true);
+        second.put("android.permission.CAMERA", true);
+
+        assertArrayEquals(PermissionStateCodec.encode(first), PermissionStateCodec.encode(second));
+    }
+
+    @Test
+    public void decode_unknownVersion() {
+        byte[] record = PermissionStateCodec.encode(new HashMap<>());
+        record[0] = (byte) (PermissionStateCodec.VERSION + 1);
+        try {
+            PermissionStateCodec.decode(record);
+            fail("expected IOException");
+        } catch (IOException expected) {
+            // ok
+        }
+    }
+
+    @Test
+    public void decode_rejectsBrokenCounts() {
+        // negative count (varint 0xFFFFFFFF), huge count, and a name longer than the record
+        assertBroken(new byte[]{PermissionStateCodec.VERSION, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F});
+        assertBroken(new byte[]{PermissionStateCodec.VERSION, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x7F});
+        assertBroken(new byte[]{PermissionStateCodec.VERSION, 1, (byte) 0xFF, (byte) 0xFF, 'a', 0});
+    }
+
+    @Test
+    public void decode_rejectsCutRecord() {
+        Map<String, Boolean> asked = new HashMap<>();
+        asked.put("android.permission.CAMERA", true);
+        byte[] record = PermissionStateCodec.encode(asked);
+        for (int length = 1; length < record.length; length++)
+            assertBroken(Arrays.copyOf(record, length));
+    }
+
+    private static void assertBroken(byte[] record) {
+        try {
+            PermissionStateCodec.decode(record);
+            fail("expected IOException");
+        } catch (IOException expected) {
+            // ok
+        }
+    }
+}
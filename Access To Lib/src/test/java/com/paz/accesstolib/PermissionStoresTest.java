@@ -0,0 +1,41 @@
+package com.paz.accesstolib;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PermissionStoresTest {
+    private static final String CAMERA = "android.permission.CAMERA";
+    private static final String CONTACTS = "android.permission.READ_CONTACTS";
+    private static final String LOCATION = "android.permission.ACCESS_FINE_LOCATION";
+
+    @Test
+    public void inMemory_marksAsked() {
+        PermissionStore store = PermissionStores.inMemory();
+        assertFalse(store.isAskedBefore(CAMERA));
+
+        store.markAsAsked(new String[]{CAMERA, CONTACTS});
+
+        assertTrue(store.isAskedBefore(CAMERA));
+        assertTrue(store.isAskedBefore(CONTACTS));
+        assertFalse(store.isAskedBefore(LOCATION));
+    }
+
+    @Test
+    public void migrate_copiesHistoryAndKeepsTarget() {
+        PermissionStore from = PermissionStores.inMemory();
+        PermissionStore to = PermissionStores.inMemory();
+        from.markAsAsked(new String[]{CAMERA, CONTACTS});
+        to.markAsAsked(new String[]{LOCATION});
+
+        assertTrue(PermissionStores.migrate(from, to));
+
+        assertEquals(new HashSet<>(Arrays.asList(CAMERA, CONTACTS, LOCATION)), to.getAskedPermissions());
+        assertEquals(new HashSet<>(Arrays.asList(CAMERA, CONTACTS)), from.getAskedPermissions());
+    }
+}
@@ -0,0 +1,75 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class PermissionWatcherTest {
+    private static final String CAMERA = "android.permission.CAMERA";
+    private static final String CONTACTS = "android.permission.READ_CONTACTS";
+    private static final String SMS = "android.permission.SEND_SMS";
+
+    private final Set<String> granted = new HashSet<>();
+    private final PermissionWatcher watcher = new PermissionWatcher(granted::contains);
+
+    @Test
+    public void check_notifiesOnlyChanges() {
+        granted.add(CAMERA);
+        RecordingListener listener = new RecordingListener();
+        watcher.watch(PermissionSet.of(CAMERA, CONTACTS), listener);
+
+        watcher.check();
+        assertEquals(0, listener.calls.size());
+
+        granted.remove(CAMERA);
+        granted.add(CONTACTS);
+        watcher.check();
+        assertEquals(1, listener.calls.size());
+        assertEquals(PermissionSet.of(CONTACTS), listener.calls.get(0)[0]);
+        assertEquals(PermissionSet.of(CAMERA), listener.calls.get(0)[1]);
+
+        watcher.check();
+        assertEquals(1, listener.calls.size());
+    }
+
+    @Test
+    public void check_notifiesOnlyWatchedPermissions() {
+        RecordingListener camera = new RecordingListener();
+        RecordingListener sms = new RecordingListener();
+        watcher.watch(PermissionSet.of(CAMERA), camera);
+        watcher.watch(PermissionSet.of(SMS), sms);
+
+        granted.add(SMS);
+        watcher.check();
+        assertEquals(0, camera.calls.size());
+        assertEquals(1, sms.calls.size());
+        assertEquals(PermissionSet.of(SMS), sms.calls.get(0)[0]);
+    }
+
+    @Test
+    public void unwatch_stopsNotifying() {
+        RecordingListener listener = new RecordingListener();
+        watcher.watch(PermissionSet.of(CAMERA), listener);
+        watcher.unwatch(listener);
+
+        granted.add(CAMERA);
+        watcher.check();
+        assertEquals(0, listener.calls.size());
+        assertEquals(PermissionSet.empty(), watcher.getGranted());
+    }
+
+    private static final class RecordingListener implements PermissionWatcher.Listener {
+        final ArrayList<PermissionSet[]> calls = new ArrayList<>();
+
+        @Override
+        public void onChanged(@NonNull PermissionSet granted, @NonNull PermissionSet revoked) {
+            calls.add(new PermissionSet[]{granted, revoked});
+        }
+    }
+}
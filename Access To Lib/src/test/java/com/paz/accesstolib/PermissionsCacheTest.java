@@ -0,0 +1,105 @@
+package com.paz.accesstolib;
+
+import android.content.SharedPreferences;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class PermissionsCacheTest {
+    private static final String CAMERA = "android.permission.CAMERA";
+    private static final String CONTACTS = "android.permission.READ_CONTACTS";
+    private static final String LOCATION = "android.permission.ACCESS_FINE_LOCATION";
+
+    private static final PermissionsCache.RecordText TEXT = new PermissionsCache.RecordText() {
+        @Override
+        public String encode(byte[] record) {
+            return Base64.getEncoder().encodeToString(record);
+        }
+
+        @Override
+        public byte[] decode(String text) {
+            return Base64.getDecoder().decode(text);
+        }
+    };
+
+    private ScheduledExecutorService executor;
+    private FakeSharedPreferences prefs;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        prefs = new FakeSharedPreferences();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void load_migratesLegacyKeys() {
+        prefs.edit().putBoolean(CAMERA, true).putBoolean(CONTACTS, false).commit();
+        PermissionsCache cache = open();
+
+        assertTrue(cache.isAskedBefore(CAMERA));
+        assertFalse(cache.isAskedBefore(CONTACTS));
+        assertTrue(cache.flush());
+
+        // the old keys are gone and the record keeps the history
+        assertFalse(prefs.contains(CAMERA));
+        assertFalse(prefs.contains(CONTACTS));
+        assertNotNull(prefs.getString(PermissionsCache.STATE_KEY, null));
+        PermissionsCache reopened = open();
+        assertEquals(new HashSet<>(Arrays.asList(CAMERA)), reopened.getAskedPermissions());
+        assertFalse(reopened.isAskedBefore(CONTACTS));
+    }
+
+    @Test
+    public void markAsAsked_writesThrough() {
+        PermissionsCache cache = open();
+        // not loaded yet, the record is written after the load
+        cache.markAsAsked(new String[]{CAMERA});
+        assertTrue(cache.flush());
+        assertEquals(new HashSet<>(Arrays.asList(CAMERA)), open().getAskedPermissions());
+
+        // loaded, written right away
+        cache.markAsAsked(new String[]{CONTACTS});
+        assertTrue(cache.flush());
+        assertEquals(new HashSet<>(Arrays.asList(CAMERA, CONTACTS)), open().getAskedPermissions());
+    }
+
+    @Test
+    public void load_brokenRecordStartsEmpty() {
+        for (String record : new String[]{"", "not base64!", TEXT.encode(new byte[]{1, 5, 0})}) {
+            prefs.edit().putString(PermissionsCache.STATE_KEY, record).commit();
+            PermissionsCache cache = open();
+
+            assertTrue(cache.getAskedPermissions().isEmpty());
+
+            // the next write replaces the broken record
+            cache.markAsAsked(new String[]{LOCATION});
+            assertTrue(cache.flush());
+            assertEquals(new HashSet<>(Arrays.asList(LOCATION)), open().getAskedPermissions());
+        }
+    }
+
+    /**
+     * a cache with a new MySharedPreferences over the same prefs, like after a restart of the process
+     */
+    private PermissionsCache open() {
+        MySharedPreferences msp = new MySharedPreferences(executor.submit(() -> (SharedPreferences) prefs), executor);
+        return new PermissionsCache(msp, TEXT);
+    }
+}
@@ -0,0 +1,162 @@
+package com.paz.accesstolib;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RequestLedgerTest {
+    private static final String CAMERA = "android.permission.CAMERA";
+    private static final String CONTACTS = "android.permission.READ_CONTACTS";
+
+    @Test
+    public void record_countsPromptsUntilGranted() throws IOException {
+        File file = tempFile();
+        RequestLedger ledger = new RequestLedger(file);
+        ledger.record(CAMERA, RequestLedger.Outcome.DENIED, 1000L);
+        ledger.record(CAMERA, RequestLedger.Outcome.DECLINED, 2000L);
+        assertEquals(2, ledger.getEntry(CAMERA).getPrompts());
+        assertEquals(RequestLedger.Outcome.DECLINED, ledger.getEntry(CAMERA).getOutcome());
+
+        ledger.record(CAMERA, RequestLedger.Outcome.GRANTED, 3000L);
+        assertEquals(0, ledger.getEntry(CAMERA).getPrompts());
+        assertNull(ledger.getEntry(CONTACTS));
+        file.delete();
+    }
+
+    @Test
+    public void flush_reloadsFromFile() throws IOException {
+        File file = tempFile();
+        RequestLedger ledger = new RequestLedger(file);
+        ledger.record(CAMERA, RequestLedger.Outcome.DENIED, 5000L);
+        ledger.record(CONTACTS, RequestLedger.Outcome.NEVER_ASK_AGAIN, 7000L);
+        ledger.record(CAMERA, RequestLedger.Outcome.DENIED, 9000L);
+        assertTrue(ledger.flush());
+
+        RequestLedger reloaded = loaded(file);
+        assertEquals(RequestLedger.Outcome.DENIED, reloaded.getEntry(CAMERA).getOutcome());
+        assertEquals(2, reloaded.getEntry(CAMERA).getPrompts());
+        assertEquals(9000L, reloaded.getEntry(CAMERA).getTime());
+        assertEquals(RequestLedger.Outcome.NEVER_ASK_AGAIN, reloaded.getEntry(CONTACTS).getOutcome());
+        file.delete();
+    }
+
+    @Test
+    public void load_dropsCutRecord() throws IOException {
+        File file = tempFile();
+        RequestLedger ledger = new RequestLedger(file);
+        ledger.record(CAMERA, RequestLedger.Outcome.DENIED, 5000L);
+        assertTrue(ledger.flush());
+        ledger.record(CONTACTS, RequestLedger.Outcome.DENIED, 6000L);
+        assertTrue(ledger.flush());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+
+        RequestLedger reloaded = loaded(file);
+        assertEquals(1, reloaded.getEntry(CAMERA).getPrompts());
+        assertNull(reloaded.getEntry(CONTACTS));
+
+        // the cut record was dropped from the file, the next appends are readable
+        reloaded.record(CONTACTS, RequestLedger.Outcome.NEVER_ASK_AGAIN, 8000L);
+        assertTrue(reloaded.flush());
+        RequestLedger again = loaded(file);
+        assertEquals(1, again.getEntry(CAMERA).getPrompts());
+        assertEquals(RequestLedger.Outcome.NEVER_ASK_AGAIN, again.getEntry(CONTACTS).getOutcome());
+        file.delete();
+    }
+
+    @Test
+    public void record_beforeLoadIsAddedToTheFileHistory() throws IOException {
+        File file = tempFile();
+        RequestLedger ledger = new RequestLedger(file);
+        ledger.record(CAMERA, RequestLedger.Outcome.DENIED, 1000L);
+        ledger.record(CAMERA, RequestLedger.Outcome.DENIED, 2000L);
+        assertTrue(ledger.flush());
+
+        // recorded before or after the load, the result is the same
+        RequestLedger reloaded = new RequestLedger(file);
+        reloaded.record(CAMERA, RequestLedger.Outcome.DECLINED, 3000L);
+        assertTrue(reloaded.flush());
+        assertEquals(3, reloaded.getEntry(CAMERA).getPrompts());
+        assertEquals(3000L, reloaded.getEntry(CAMERA).getTime());
+        assertEquals(3, loaded(file).getEntry(CAMERA).getPrompts());
+        file.delete();
+    }
+
+    @Test
+    public void append_compactsLongHistory() throws IOException {
+        File file = tempFile();
+        RequestLedger ledger = new RequestLedger(file);
+        for (int i = 1; i <= 50; i++) {
+            ledger.record(CAMERA, RequestLedger.Outcome.DENIED, i * 1000L);
+            assertTrue(ledger.flush());
+        }
+        // 50 entry records take at least 5 bytes each
+        assertTrue(file.length() < 50 * 5);
+
+        RequestLedger reloaded = loaded(file);
+        assertEquals(50, reloaded.getEntry(CAMERA).getPrompts());
+        assertEquals(50000L, reloaded.getEntry(CAMERA).getTime());
+        file.delete();
+    }
+
+    @Test
+    public void backoff_growsUpToMax() {
+        BackoffPolicy policy = new BackoffPolicy.Builder()
+                .setCooldown(1, TimeUnit.HOURS)
+                .setMultiplier(2)
+                .setMaxCooldown(3, TimeUnit.HOURS)
+                .build();
+        long hour = TimeUnit.HOURS.toMillis(1);
+
+        assertEquals(0L, policy.nextAllowedTime(null));
+        assertEquals(hour, policy.nextAllowedTime(new RequestLedger.Entry(0L, RequestLedger.Outcome.DENIED, 1)));
+        assertEquals(2 * hour, policy.nextAllowedTime(new RequestLedger.Entry(0L, RequestLedger.Outcome.DENIED, 2)));
+        assertEquals(3 * hour, policy.nextAllowedTime(new RequestLedger.Entry(0L, RequestLedger.Outcome.DENIED, 5)));
+        assertEquals(0L, policy.nextAllowedTime(new RequestLedger.Entry(0L, RequestLedger.Outcome.GRANTED, 0)));
+    }
+
+    @Test
+    public void backoff_defaultMaxDoesNotOverflow() {
+        BackoffPolicy policy = new BackoffPolicy.Builder()
+                .setCooldown(1, TimeUnit.DAYS)
+                .setMultiplier(2)
+                .build();
+        RequestLedger.Entry entry = new RequestLedger.Entry(1_600_000_000_000L, RequestLedger.Outcome.DENIED, 2000);
+
+        assertEquals(Long.MAX_VALUE, policy.nextAllowedTime(entry));
+        assertFalse(policy.allows(entry, 1_700_000_000_000L));
+    }
+
+    @Test
+    public void backoff_maxAttempts() {
+        BackoffPolicy policy = new BackoffPolicy.Builder().setMaxAttempts(2).build();
+
+        assertTrue(policy.allows(new RequestLedger.Entry(0L, RequestLedger.Outcome.DENIED, 1), 0L));
+        assertFalse(policy.allows(new RequestLedger.Entry(0L, RequestLedger.Outcome.DENIED, 2), Long.MAX_VALUE - 1));
+        assertTrue(BackoffPolicy.NONE.allows(new RequestLedger.Entry(0L, RequestLedger.Outcome.NEVER_ASK_AGAIN, 100), 0L));
+    }
+
+    /**
+     * a ledger of the file after the load, flush runs on the background thread after it
+     */
+    private static RequestLedger loaded(File file) {
+        RequestLedger ledger = new RequestLedger(file);
+        assertTrue(ledger.flush());
+        return ledger;
+    }
+
+    private static File tempFile() throws IOException {
+        File file = File.createTempFile("ledger", null);
+        assertTrue(file.delete());
+        return file;
+    }
+}
@@ -0,0 +1,92 @@
+package com.paz.accesstolib;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RequestTableTest {
+    private final ArrayList<RequestTable.Entry> expired = new ArrayList<>();
+    private final RequestTable table = new RequestTable(expired::add);
+
+    private static RequestTable.Entry entry(int code, long startTime) {
+        return new RequestTable.Entry(code, PermissionSet.empty(), null, null, startTime);
+    }
+
+    @Test
+    public void putGetRemove_manyCodes() {
+        RequestTable.Entry[] entries = new RequestTable.Entry[100];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = entry(RequestCodes.DEFAULT_FIRST + i * 16, 0);
+            table.put(entries[i], 0);
+        }
+        for (int i = 0; i < entries.length; i += 2)
+            assertSame(entries[i], table.remove(entries[i].requestCode));
+        for (int i = 0; i < entries.length; i++) {
+            if (i % 2 == 0)
+                assertNull(table.get(entries[i].requestCode));
+            else
+                assertSame(entries[i], table.get(entries[i].requestCode));
+        }
+    }
+
+    @Test
+    public void remove_unknownCode() {
+        table.put(entry(1, 0), 0);
+
+        assertNull(table.remove(2));
+    }
+
+    @Test
+    public void put_dropsExpiredEntries() {
+        RequestTable.Entry old = entry(1, 0);
+        RequestTable.Entry fresh = entry(2, RequestTable.EXPIRE_AFTER_MS);
+        table.put(old, 0);
+        table.put(fresh, RequestTable.EXPIRE_AFTER_MS);
+
+        table.put(entry(3, RequestTable.EXPIRE_AFTER_MS + 1), RequestTable.EXPIRE_AFTER_MS + 1);
+
+        assertEquals(1, expired.size());
+        assertSame(old, expired.get(0));
+        assertNull(table.get(1));
+        assertSame(fresh, table.get(2));
+    }
+
+    @Test
+    public void nextExpiry_isTheOldestEntry() {
+        assertEquals(Long.MAX_VALUE, table.nextExpiry());
+        table.put(entry(1, 500), 500);
+        table.put(entry(2, 100), 500);
+
+        long next = table.nextExpiry();
+        assertEquals(100 + RequestTable.EXPIRE_AFTER_MS + 1, next);
+        table.expire(next);
+        assertNull(table.get(2));
+        assertEquals(2, expired.get(0).requestCode);
+    }
+
+    @Test
+    public void expire_clusterThatWrapsAround() {
+        // three codes whose home is the last slot of the first 8 slots: they take the slots 7, 0 and 1
+        int[] codes = new int[3];
+        for (int code = 0, found = 0; found < codes.length; code++) {
+            if ((RequestTable.mix(code) & 7) == 7)
+                codes[found++] = code;
+        }
+        table.put(entry(codes[0], 0), 0);
+        table.put(entry(codes[1], 0), 0);
+        RequestTable.Entry fresh = entry(codes[2], RequestTable.EXPIRE_AFTER_MS);
+        table.put(fresh, 0);
+
+        table.expire(RequestTable.EXPIRE_AFTER_MS + 1);
+
+        assertEquals(2, expired.size());
+        assertNull(table.get(codes[0]));
+        assertNull(table.get(codes[1]));
+        assertSame(fresh, table.get(codes[2]));
+        assertEquals(1, table.entries().size());
+    }
+}
@@ -0,0 +1,77 @@
+package com.paz.accesstolib;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SerialExecutorTest {
+
+    @Test
+    public void execute_runsInOrderOneAtATime() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        SerialExecutor executor = new SerialExecutor(pool);
+        int count = 1000;
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            executor.execute(() -> {
+                if (running.incrementAndGet() > 1)
+                    overlaps.incrementAndGet();
+                order.add(index);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertEquals(0, overlaps.get());
+        for (int i = 0; i < count; i++)
+            assertEquals(i, (int) order.get(i));
+    }
+
+    @Test
+    public void execute_continuesAfterTaskThrows() {
+        ArrayDeque<Runnable> posted = new ArrayDeque<>();
+        SerialExecutor executor = new SerialExecutor(posted::add);
+        List<String> ran = new ArrayList<>();
+        executor.execute(() -> ran.add("first"));
+        executor.execute(() -> {
+            throw new IllegalStateException("task failed");
+        });
+        executor.execute(() -> ran.add("third"));
+
+        int failures = 0;
+        Runnable drain;
+        while ((drain = posted.poll()) != null) {
+            try {
+                drain.run();
+            } catch (IllegalStateException e) {
+                failures++;
+            }
+        }
+
+        assertEquals(1, failures);
+        assertEquals(2, ran.size());
+        assertEquals("third", ran.get(1));
+
+        // the executor is idle again and takes new tasks
+        executor.execute(() -> ran.add("fourth"));
+        posted.poll().run();
+        assertEquals("fourth", ran.get(2));
+    }
+}
@@ -0,0 +1,153 @@
+package com.paz.accesstolib;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * decision throughput of PermissionEngine for requests of 1 to 50 permissions.
+ * a third of the permissions are granted, a third can be asked again and a third are "don't ask again"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PermissionEngineBenchmark {
+
+    @Param({"1", "5", "10", "25", "50"})
+    public int size;
+
+    private String[] permissions;
+    private int[] grantResults;
+    private PermissionSet requested;
+    private PermissionEngine engine;
+
+    private static final class Host implements PermissionHost {
+        final Set<String> granted = new HashSet<>();
+        final Set<String> rationale = new HashSet<>();
+        final Set<String> asked = new HashSet<>();
+
+        @Override
+        public boolean isGranted(String permission) {
+            return granted.contains(permission);
+        }
+
+        @Override
+        public boolean shouldShowRationale(String permission) {
+            return rationale.contains(permission);
+        }
+
+        @Override
+        public boolean isDeclared(String permission) {
+            return true;
+        }
+
+        @Override
+        public boolean isAskedBefore(String permission) {
+            return asked.contains(permission);
+        }
+
+        @Override
+        public void markAsAsked(String[] permissions) {
+        }
+
+        @Override
+        public void requestPermissions(String[] permissions, int requestCode) {
+        }
+
+        @Override
+        public void startSettings(int requestCode) {
+        }
+    }
+
+    private static final class Listener implements GrantListener {
+        Blackhole blackhole;
+
+        @Override
+        public void onGranted(boolean allGranted) {
+            blackhole.consume(allGranted);
+        }
+
+        @Override
+        public void onNotGranted(String[] permissions) {
+            blackhole.consume(permissions);
+        }
+
+        @Override
+        public void onNeverAskAgain(String[] permissions) {
+            blackhole.consume(permissions);
+        }
+
+        @Override
+        public void onNotGranted(PermissionSet permissions) {
+            blackhole.consume(permissions);
+        }
+
+        @Override
+        public void onNeverAskAgain(PermissionSet permissions) {
+            blackhole.consume(permissions);
+        }
+    }
+
+    private final Listener listener = new Listener();
+
+    @Setup
+    public void setup() {
+        Host host = new Host();
+        permissions = new String[size];
+        grantResults = new int[size];
+        for (int i = 0; i < size; i++) {
+            String permission = "com.paz.accesstolib.benchmark.PERMISSION_" + i;
+            permissions[i] = permission;
+            host.asked.add(permission);
+            switch (i % 3) {
+                case 0:
+                    host.granted.add(permission);
+                    break;
+                case 1:
+                    host.rationale.add(permission);
+                    grantResults[i] = -1;
+                    break;
+                default:
+                    grantResults[i] = -1;
+                    break;
+            }
+        }
+        requested = PermissionSet.of(permissions);
+        engine = new PermissionEngine(host);
+    }
+
+    /**
+     * requestPermissionsWithForce: the state of every permission and the action
+     */
+    @Benchmark
+    public PermissionEngine.Action decide() {
+        return PermissionEngine.decide(engine.snapshot(permissions));
+    }
+
+    /**
+     * requestPermissions: the permissions that are not granted
+     */
+    @Benchmark
+    public PermissionSet notGranted() {
+        return engine.notGranted(permissions);
+    }
+
+    /**
+     * onRequestPermissionsResult: the results and the GrantListener callbacks
+     */
+    @Benchmark
+    public void deliver(Blackhole blackhole) {
+        listener.blackhole = blackhole;
+        PermissionEngine.deliver(listener, requested, engine.resultSnapshot(permissions, grantResults));
+    }
+}
@@ -0,0 +1,389 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * one simulated user: a fake system permission state, a fake activity (PermissionHost) and the flows of GiveMe
+ * (PermissionFlow) with simulated dialogs, repeated over sessions until a terminal state. the user's answers come
+ * from Decisions. the GrantListener and DialogListener contracts are checked on every callback
+ */
+final class ScenarioRun {
+    static final int MAX_SESSIONS = 8;
+
+    enum Strategy {
+        /**
+         * GiveMe.requestPermissions
+         */
+        REQUEST,
+        /**
+         * GiveMe.requestPermissionsWithForce
+         */
+        FORCE,
+        /**
+         * GiveMe.requestPermissionsWithDialog
+         */
+        DIALOG
+    }
+
+    enum Terminal {
+        /**
+         * all the permissions are granted
+         */
+        GRANTED,
+        /**
+         * a session ended without showing anything to the user and nothing is granted, the flow can't make progress
+         */
+        BLOCKED,
+        /**
+         * not granted after MAX_SESSIONS sessions
+         */
+        GAVE_UP
+    }
+
+    interface Decisions {
+        /**
+         * @param choices - number of choices
+         * @return the user's choice, 0 to choices - 1
+         */
+        int next(int choices);
+    }
+
+    interface Violations {
+        void add(@NonNull String violation);
+    }
+
+    // answers of the system dialog
+    private static final int GRANT = 0;
+    private static final int DENY = 1;
+    private static final int NEVER_ASK_AGAIN = 2;
+
+    private final Strategy strategy;
+    private final String[] permissions;
+    private final Decisions decisions;
+    private final Violations violations;
+    private final boolean[] granted;
+    private final boolean[] denied;
+    private final boolean[] never;
+    private final Set<String> asked = new HashSet<>();
+    private final PermissionEngine engine = new PermissionEngine(new FakeHost());
+    private final ContractListener listener = new ContractListener();
+    private final SimulatedSteps steps = new SimulatedSteps();
+    private final String scenario;
+
+    private int prompts;
+    private int session;
+    private String[] systemRequest;
+    private boolean settingsRequest;
+    /**
+     * the user declined a dialog of GiveMe in this session
+     */
+    private boolean declined;
+
+    ScenarioRun(@NonNull Strategy strategy, @NonNull String[] permissions, @NonNull Decisions decisions,
+                @NonNull Violations violations, long index) {
+        this.strategy = strategy;
+        this.permissions = permissions;
+        this.decisions = decisions;
+        this.violations = violations;
+        this.scenario = strategy + " scenario " + index;
+        granted = new boolean[permissions.length];
+        denied = new boolean[permissions.length];
+        never = new boolean[permissions.length];
+    }
+
+    /**
+     * @return number of prompts the user saw: system dialog prompts, GiveMe dialogs and app setting visits
+     */
+    int getPrompts() {
+        return prompts;
+    }
+
+    /**
+     * run sessions until a terminal state
+     */
+    @NonNull
+    Terminal run() {
+        for (session = 0; session < MAX_SESSIONS; session++) {
+            int before = prompts;
+            runSession();
+            if (allGranted())
+                return Terminal.GRANTED;
+            if (prompts == before)
+                return Terminal.BLOCKED;
+        }
+        return Terminal.GAVE_UP;
+    }
+
+    private void runSession() {
+        listener.reset();
+        listener.expect(PermissionSet.of(permissions));
+        declined = false;
+        switch (strategy) {
+            case REQUEST:
+                PermissionFlow.request(engine.notGranted(permissions), listener, steps);
+                break;
+            case FORCE:
+                PermissionFlow.force(engine.snapshot(permissions), permissions, listener, steps);
+                break;
+            default:
+                PermissionFlow.dialog(engine.snapshot(permissions), permissions, listener, steps);
+                break;
+        }
+        // a declined dialog of GiveMe ends the flow without calling the GrantListener
+        int expected = declined ? 0 : 1;
+        if (listener.grantedCalls != expected)
+            violation("onGranted called " + listener.grantedCalls + " times");
+    }
+
+    /**
+     * the system dialog and onRequestPermissionsResult
+     */
+    private void systemDialog(PermissionSet requested, GrantListener grantListener) {
+        systemRequest = null;
+        engine.request(requested, 0);
+        String[] shown = systemRequest;
+        if (shown == null) {
+            violation("the system dialog was not requested");
+            return;
+        }
+        int[] grantResults = new int[shown.length];
+        for (int i = 0; i < shown.length; i++) {
+            int p = indexOf(shown[i]);
+            if (!granted[p] && !never[p]) {
+                prompts++;
+                switch (decisions.next(3)) {
+                    case GRANT:
+                        granted[p] = true;
+                        break;
+                    case DENY:
+                        denied[p] = true;
+                        break;
+                    case NEVER_ASK_AGAIN:
+                        denied[p] = true;
+                        never[p] = true;
+                        break;
+                }
+            }
+            grantResults[i] = granted[p] ? PermissionEngine.PERMISSION_GRANTED : -1;
+        }
+        listener.expect(requested);
+        PermissionEngine.deliver(grantListener, requested, engine.resultSnapshot(shown, grantResults));
+    }
+
+    /**
+     * the app setting and onActivityResult. the user grants everything or nothing
+     */
+    private void settingScreen(String[] requestedPermissions, GrantListener grantListener) {
+        settingsRequest = false;
+        engine.openSettings(0);
+        if (!settingsRequest) {
+            violation("the app setting was not opened");
+            return;
+        }
+        prompts++;
+        if (decisions.next(2) == 0) {
+            for (int p = 0; p < permissions.length; p++) {
+                granted[p] = true;
+                denied[p] = false;
+                never[p] = false;
+            }
+        }
+        PermissionSet requested = PermissionSet.of(requestedPermissions);
+        listener.expect(requested);
+        PermissionEngine.deliver(grantListener, requested, engine.resultSnapshot(requestedPermissions, null));
+    }
+
+    private boolean allGranted() {
+        for (boolean g : granted) {
+            if (!g)
+                return false;
+        }
+        return true;
+    }
+
+    private int indexOf(String permission) {
+        for (int p = 0; p < permissions.length; p++) {
+            if (permissions[p].equals(permission))
+                return p;
+        }
+        throw new IllegalArgumentException("unknown permission " + permission);
+    }
+
+    private boolean rationale(int p) {
+        return !granted[p] && denied[p] && !never[p];
+    }
+
+    private void violation(String message) {
+        violations.add(scenario + " session " + session + ": " + message);
+    }
+
+    /**
+     * the dialogs of GiveMe, the system dialog and the app setting, answered by the Decisions
+     */
+    private final class SimulatedSteps implements PermissionFlow.Steps {
+        @Override
+        public void request(@NonNull PermissionSet permissions, GrantListener grantListener) {
+            systemDialog(permissions, grantListener);
+        }
+
+        @Override
+        public void showSettingDialog(@NonNull String[] permissions, GrantListener grantListener) {
+            CheckedDialogListener dialogListener = new CheckedDialogListener();
+            prompts++;
+            if (decisions.next(2) == 0) {
+                openSettings(permissions, grantListener);
+                dialogListener.onPositiveButton();
+            } else {
+                declined = true;
+                dialogListener.onNegativeButton();
+            }
+            dialogListener.check();
+        }
+
+        @Override
+        public void showRationaleDialog(@NonNull PermissionSnapshot snapshot, @NonNull String[] permissions, GrantListener grantListener) {
+            CheckedDialogListener dialogListener = new CheckedDialogListener();
+            prompts++;
+            if (decisions.next(2) == 0) {
+                PermissionFlow.rationaleAccepted(snapshot, permissions, grantListener, this);
+                dialogListener.onPositiveButton();
+            } else {
+                declined = true;
+                dialogListener.onNegativeButton();
+            }
+            dialogListener.check();
+        }
+
+        @Override
+        public void openSettings(@NonNull String[] permissions, GrantListener grantListener) {
+            settingScreen(permissions, grantListener);
+        }
+    }
+
+    /**
+     * the fake activity and the fake store
+     */
+    private final class FakeHost implements PermissionHost {
+        @Override
+        public boolean isGranted(@NonNull String permission) {
+            return granted[indexOf(permission)];
+        }
+
+        @Override
+        public boolean shouldShowRationale(@NonNull String permission) {
+            return rationale(indexOf(permission));
+        }
+
+        @Override
+        public boolean isDeclared(@NonNull String permission) {
+            return true;
+        }
+
+        @Override
+        public boolean isAskedBefore(@NonNull String permission) {
+            return asked.contains(permission);
+        }
+
+        @Override
+        public void markAsAsked(@NonNull String[] permissions) {
+            for (String permission : permissions)
+                asked.add(permission);
+        }
+
+        @Override
+        public void requestPermissions(@NonNull String[] permissions, int requestCode) {
+            systemRequest = permissions;
+        }
+
+        @Override
+        public void startSettings(int requestCode) {
+            settingsRequest = true;
+        }
+    }
+
+    /**
+     * checks the GrantListener contract of one session: onNeverAskAgain and onNotGranted at most once with
+     * permissions of the request that are in that state, then onGranted once with the real result
+     */
+    private final class ContractListener implements GrantListener {
+        PermissionSet requested = PermissionSet.empty();
+        int grantedCalls;
+        int notGrantedCalls;
+        int neverAskAgainCalls;
+
+        void reset() {
+            grantedCalls = 0;
+            notGrantedCalls = 0;
+            neverAskAgainCalls = 0;
+        }
+
+        void expect(PermissionSet requested) {
+            this.requested = requested;
+        }
+
+        @Override
+        public void onGranted(boolean allGranted) {
+            if (++grantedCalls > 1)
+                return; // counted by runSession
+            boolean expected = true;
+            for (String permission : requested.toArray())
+                expected &= granted[indexOf(permission)];
+            if (allGranted != expected)
+                violation("onGranted(" + allGranted + ") but all granted is " + expected);
+        }
+
+        @Override
+        public void onNotGranted(String[] permissions) {
+            if (grantedCalls > 0)
+                violation("onNotGranted after onGranted");
+            if (++notGrantedCalls > 1)
+                violation("onNotGranted called again");
+            for (String permission : permissions) {
+                if (!requested.contains(permission))
+                    violation("onNotGranted with " + permission + " that was not requested");
+                else if (!rationale(indexOf(permission)))
+                    violation("onNotGranted with " + permission + " that can't be asked again");
+            }
+        }
+
+        @Override
+        public void onNeverAskAgain(String[] permissions) {
+            if (grantedCalls > 0)
+                violation("onNeverAskAgain after onGranted");
+            if (++neverAskAgainCalls > 1)
+                violation("onNeverAskAgain called again");
+            for (String permission : permissions) {
+                int p = indexOf(permission);
+                if (!requested.contains(permission))
+                    violation("onNeverAskAgain with " + permission + " that was not requested");
+                else if (granted[p] || rationale(p))
+                    violation("onNeverAskAgain with " + permission + " that can be asked again");
+            }
+        }
+    }
+
+    /**
+     * checks that exactly one button callback is called per dialog
+     */
+    private final class CheckedDialogListener implements DialogListener {
+        int calls;
+
+        @Override
+        public void onPositiveButton() {
+            calls++;
+        }
+
+        @Override
+        public void onNegativeButton() {
+            calls++;
+        }
+
+        void check() {
+            if (calls != 1)
+                violation("DialogListener called " + calls + " times");
+        }
+    }
+}
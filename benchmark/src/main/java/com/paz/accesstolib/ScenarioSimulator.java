@@ -0,0 +1,125 @@
+package com.paz.accesstolib;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * replays the GiveMe flows (requestPermissions, requestPermissionsWithForce, requestPermissionsWithDialog) over
+ * many users on all the cores and reports, per strategy, the prompts until a terminal state and the
+ * GrantListener / DialogListener contract violations.
+ * <p>
+ * usage: ScenarioSimulator [scenarios] [permissions] [exhaustive|random] [seed]
+ * <p>
+ * exhaustive: scenario i answers with the digits of i in the radix of each question, so the first N scenarios
+ * cover every answer sequence in proportion to its probability. random: scenario i answers from a random seeded with seed + i
+ */
+public final class ScenarioSimulator {
+    private static final String[] PERMISSIONS = {
+            "android.permission.CAMERA",
+            "android.permission.RECORD_AUDIO",
+            "android.permission.READ_CONTACTS",
+            "android.permission.ACCESS_FINE_LOCATION",
+            "android.permission.READ_CALENDAR",
+            "android.permission.SEND_SMS",
+            "android.permission.CALL_PHONE",
+            "android.permission.BODY_SENSORS"
+    };
+    /**
+     * scenarios per fork/join leaf
+     */
+    private static final long THRESHOLD = 4096;
+
+    private ScenarioSimulator() {
+    }
+
+    public static void main(String[] args) {
+        long scenarios = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000L;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        boolean exhaustive = args.length <= 2 || !"random".equals(args[2]);
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 0L;
+        if (count < 1 || count > PERMISSIONS.length)
+            throw new IllegalArgumentException("permissions must be 1 to " + PERMISSIONS.length);
+        String[] permissions = new String[count];
+        System.arraycopy(PERMISSIONS, 0, permissions, 0, count);
+
+        System.out.println(scenarios + " " + (exhaustive ? "exhaustive" : "random") + " scenarios, "
+                + count + " permissions, " + ForkJoinPool.commonPool().getParallelism() + " workers");
+        long violations = 0;
+        for (ScenarioRun.Strategy strategy : ScenarioRun.Strategy.values()) {
+            long start = System.nanoTime();
+            ScenarioStats stats = simulate(strategy, permissions, scenarios, exhaustive, seed);
+            stats.print(System.out, strategy);
+            System.out.printf("  %d ms%n", (System.nanoTime() - start) / 1_000_000L);
+            violations += stats.getViolations();
+        }
+        if (violations > 0)
+            System.exit(1);
+    }
+
+    /**
+     * @param strategy    - the GiveMe flow
+     * @param permissions - the permissions of the request
+     * @param scenarios   - number of scenarios
+     * @param exhaustive  - enumerate the answers instead of random answers
+     * @param seed        - the seed of the random answers
+     * @return the merged results
+     */
+    static ScenarioStats simulate(ScenarioRun.Strategy strategy, String[] permissions, long scenarios, boolean exhaustive, long seed) {
+        return ForkJoinPool.commonPool().invoke(new Task(strategy, permissions, exhaustive, seed, 0, scenarios));
+    }
+
+    private static final class Task extends RecursiveTask<ScenarioStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final ScenarioRun.Strategy strategy;
+        private final String[] permissions;
+        private final boolean exhaustive;
+        private final long seed;
+        private final long from;
+        private final long to;
+
+        Task(ScenarioRun.Strategy strategy, String[] permissions, boolean exhaustive, long seed, long from, long to) {
+            this.strategy = strategy;
+            this.permissions = permissions;
+            this.exhaustive = exhaustive;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ScenarioStats compute() {
+            if (to - from <= THRESHOLD) {
+                ScenarioStats stats = new ScenarioStats();
+                for (long i = from; i < to; i++) {
+                    ScenarioRun run = new ScenarioRun(strategy, permissions, decisions(i), stats, i);
+                    stats.add(run.run(), run.getPrompts());
+                }
+                return stats;
+            }
+            long middle = (from + to) >>> 1;
+            Task left = new Task(strategy, permissions, exhaustive, seed, from, middle);
+            left.fork();
+            ScenarioStats right = new Task(strategy, permissions, exhaustive, seed, middle, to).compute();
+            return left.join().merge(right);
+        }
+
+        private ScenarioRun.Decisions decisions(long index) {
+            if (!exhaustive) {
+                SplittableRandom random = new SplittableRandom(seed + index);
+                return random::nextInt;
+            }
+            return new ScenarioRun.Decisions() {
+                private long rest = index;
+
+                @Override
+                public int next(int choices) {
+                    int choice = (int) (rest % choices);
+                    rest /= choices;
+                    return choice;
+                }
+            };
+        }
+    }
+}
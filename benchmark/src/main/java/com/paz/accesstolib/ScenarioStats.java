@@ -0,0 +1,79 @@
+package com.paz.accesstolib;
+
+import androidx.annotation.NonNull;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * results of many ScenarioRun of one strategy. not thread safe, every fork/join leaf has its own and they are merged
+ */
+final class ScenarioStats implements ScenarioRun.Violations {
+    static final int MAX_PROMPTS = 32;
+    private static final int MAX_SAMPLES = 10;
+
+    private long scenarios;
+    private final long[] terminals = new long[ScenarioRun.Terminal.values().length];
+    /**
+     * prompts until the terminal state, the last bucket counts MAX_PROMPTS and more
+     */
+    private final long[] prompts = new long[MAX_PROMPTS + 1];
+    private long promptSum;
+    private long violations;
+    private final List<String> samples = new ArrayList<>();
+
+    void add(@NonNull ScenarioRun.Terminal terminal, int prompts) {
+        scenarios++;
+        terminals[terminal.ordinal()]++;
+        this.prompts[Math.min(prompts, MAX_PROMPTS)]++;
+        promptSum += prompts;
+    }
+
+    @Override
+    public void add(@NonNull String violation) {
+        violations++;
+        if (samples.size() < MAX_SAMPLES)
+            samples.add(violation);
+    }
+
+    @NonNull
+    ScenarioStats merge(@NonNull ScenarioStats other) {
+        scenarios += other.scenarios;
+        for (int i = 0; i < terminals.length; i++)
+            terminals[i] += other.terminals[i];
+        for (int i = 0; i < prompts.length; i++)
+            prompts[i] += other.prompts[i];
+        promptSum += other.promptSum;
+        violations += other.violations;
+        for (int i = 0; i < other.samples.size() && samples.size() < MAX_SAMPLES; i++)
+            samples.add(other.samples.get(i));
+        return this;
+    }
+
+    long getScenarios() {
+        return scenarios;
+    }
+
+    long getTerminal(@NonNull ScenarioRun.Terminal terminal) {
+        return terminals[terminal.ordinal()];
+    }
+
+    long getViolations() {
+        return violations;
+    }
+
+    void print(@NonNull PrintStream out, @NonNull ScenarioRun.Strategy strategy) {
+        out.println(strategy + ": " + scenarios + " scenarios");
+        for (ScenarioRun.Terminal terminal : ScenarioRun.Terminal.values())
+            out.printf("  %-8s %d%n", terminal, terminals[terminal.ordinal()]);
+        out.printf("  prompts until terminal: mean %.2f%n", scenarios == 0 ? 0.0 : (double) promptSum / scenarios);
+        for (int i = 0; i < prompts.length; i++) {
+            if (prompts[i] > 0)
+                out.printf("    %s%d: %d%n", i == MAX_PROMPTS ? ">=" : "", i, prompts[i]);
+        }
+        out.println("  contract violations: " + violations);
+        for (String sample : samples)
+            out.println("    " + sample);
+    }
+}